@@ -0,0 +1,103 @@
+package no.difi.move.kosmos;
+
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import no.difi.move.kosmos.config.BlocklistProperties;
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.config.VerificationProperties;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+
+/**
+ * Properties and stub repository shared by the benchmarks, using the signed distribution from the Cucumber tests.
+ */
+@UtilityClass
+public class BenchmarkFixtures {
+
+    public static final String PUBLIC_KEY = "gpg/public-key.asc";
+    public static final String SIGNED_JAR = "cucumber/success.jar";
+    public static final String SIGNATURE = "cucumber/success.jar.asc";
+
+    @SneakyThrows
+    public static KosmosProperties kosmosProperties(URL mavenCentral, File home) {
+        return new KosmosProperties()
+                .setOrgnumber("910077473")
+                .setMavenCentral(mavenCentral)
+                .setGroupId("maven2/no/difi/meldingsutveksling/")
+                .setArtifactId("integrasjonspunkt/")
+                .setActuatorConnectTimeoutInMs(1000)
+                .setActuatorReadTimeoutInMs(1000)
+                .setShutdownRetries(1)
+                .setShutdownPollIntervalInMs(1)
+                .setShutdownInitialPollIntervalInMs(1)
+                .setLaunchTimeoutInMs(1000)
+                .setLaunchPollIntervalInMs(1)
+                .setLaunchInitialPollIntervalInMs(1)
+                .setMavenCentralConnectTimeoutInMs(5000)
+                .setMavenCentralReadTimeoutInMs(60000)
+                .setMavenCentralDownloadRetries(0)
+                .setBlocklist(new BlocklistProperties().setDurationInHours(2))
+                .setVerification(new VerificationProperties()
+                        .setPublicKeyPaths(Collections.singletonList(new ClassPathResource(PUBLIC_KEY))))
+                .setIntegrasjonspunkt(new IntegrasjonspunktProperties()
+                        .setHome(home.getAbsolutePath())
+                        .setProfile("staging")
+                        .setBaseURL(new URL("http://localhost:9093"))
+                        .setStartupLogMaxLines(1000)
+                        .setStartupLogMaxBytes(131072));
+    }
+
+    @SneakyThrows
+    public static byte[] read(String resource) {
+        return StreamUtils.copyToByteArray(new ClassPathResource(resource).getInputStream());
+    }
+
+    /**
+     * Serves the given JAR and its checksums and signature for any version.
+     */
+    @SneakyThrows
+    public static Dispatcher repository(byte[] jar, String signature) {
+        String sha1 = hex(MessageDigest.getInstance("SHA-1").digest(jar));
+        String md5 = DigestUtils.md5DigestAsHex(jar);
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.endsWith(".jar.sha1")) {
+                    return new MockResponse().setBody(sha1);
+                }
+                if (path.endsWith(".jar.md5")) {
+                    return new MockResponse().setBody(md5);
+                }
+                if (path.endsWith(".jar.asc")) {
+                    return new MockResponse().setBody(signature);
+                }
+                return new MockResponse().setBody(new Buffer().write(jar));
+            }
+        };
+    }
+
+    public static String signature() {
+        return new String(read(SIGNATURE), StandardCharsets.US_ASCII);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
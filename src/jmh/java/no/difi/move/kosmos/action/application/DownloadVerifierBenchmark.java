@@ -0,0 +1,65 @@
+package no.difi.move.kosmos.action.application;
+
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import no.difi.move.kosmos.service.codesigner.SignedDataVerifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SHA-1 and MD5 hashing ValidateAction relies on, fed in chunks the size of a network buffer.
+ * Signature verification is left out here and measured by GpgServiceImplBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DownloadVerifierBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"1", "100"})
+    public int sizeInMb;
+
+    private ByteBuffer data;
+
+    @Setup
+    public void setUp() {
+        byte[] bytes = new byte[sizeInMb * 1024 * 1024];
+        new Random(42).nextBytes(bytes);
+        data = ByteBuffer.wrap(bytes);
+    }
+
+    @Benchmark
+    public ApplicationMetadata hash() {
+        DownloadVerifier verifier = new DownloadVerifier(new NoSignatureVerifier());
+        for (int position = 0; position < data.capacity(); position += CHUNK_SIZE) {
+            ByteBuffer chunk = data.duplicate();
+            chunk.position(position).limit(Math.min(position + CHUNK_SIZE, data.capacity()));
+            verifier.update(chunk);
+        }
+        ApplicationMetadata metadata = new ApplicationMetadata();
+        verifier.applyTo(metadata);
+        return metadata;
+    }
+
+    private static class NoSignatureVerifier implements SignedDataVerifier {
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+        }
+
+        @Override
+        public boolean verify() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package no.difi.move.kosmos.handler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.difi.move.kosmos.BenchmarkFixtures;
+import no.difi.move.kosmos.action.application.*;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.HealthStatus;
+import no.difi.move.kosmos.domain.VersionInfo;
+import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
+import no.difi.move.kosmos.repo.VersionStateStore;
+import no.difi.move.kosmos.repo.WebClientMavenCentralRepo;
+import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.codesigner.GpgServiceImpl;
+import no.difi.move.kosmos.service.codesigner.PublicKeyVerifierImpl;
+import no.difi.move.kosmos.service.config.NoOpRefreshServiceImpl;
+import no.difi.move.kosmos.service.launcher.ExplodedLayout;
+import no.difi.move.kosmos.service.launcher.LauncherService;
+import no.difi.move.kosmos.service.launcher.LibraryStore;
+import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
+import no.difi.move.kosmos.service.launcher.dto.LaunchStatus;
+import no.difi.move.kosmos.service.mail.MailService;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full upgrade from 2.1.0 to 2.2.0: resolve, download, validate and swap, against a stub repository.
+ * The integrasjonspunkt process is simulated, so the numbers show Kosmos' own share of the upgrade time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SynchronizationHandlerBenchmark {
+
+    private static final String CURRENT_VERSION = "2.1.0";
+    private static final String LATEST_VERSION = "2.2.0";
+
+    private MockWebServer server;
+    private File home;
+    private KosmosProperties properties;
+    private int invocations;
+    private SimulatedIntegrasjonspunkt integrasjonspunkt;
+    private SynchronizationHandler handler;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(BenchmarkFixtures.repository(
+                BenchmarkFixtures.read(BenchmarkFixtures.SIGNED_JAR), BenchmarkFixtures.signature()));
+        server.start();
+        home = Files.createTempDirectory("kosmos-synchronization-benchmark").toFile();
+
+        properties = BenchmarkFixtures.kosmosProperties(server.url("/").url(), home);
+        properties.getIntegrasjonspunkt().setLatestVersion(LATEST_VERSION);
+        KosmosDirectoryRepo directoryRepo = new KosmosDirectoryRepo(properties, new VersionStateStore(properties));
+        integrasjonspunkt = new SimulatedIntegrasjonspunkt();
+        MailService mailService = (subject, content) -> {
+        };
+
+        handler = new SynchronizationHandler(
+                new GetCurrentVersionAction(directoryRepo, integrasjonspunkt, directoryRepo),
+                new LatestVersionAction(properties, new NoOpRefreshServiceImpl()),
+                new VerifyVersionComplianceAction(properties, directoryRepo),
+                new PrepareApplicationAction(properties, new WebClientMavenCentralRepo(properties), directoryRepo,
+                        new GpgServiceImpl(properties, new PublicKeyVerifierImpl())),
+                new ValidateAction(directoryRepo, properties),
+                new ExtractApplicationAction(properties, new ExplodedLayout(properties, directoryRepo, new LibraryStore(properties))),
+                new ClassDataSharingAction(properties, integrasjonspunkt),
+                new ShutdownAction(properties, integrasjonspunkt, integrasjonspunkt),
+                new StartAction(properties, integrasjonspunkt, integrasjonspunkt, directoryRepo, mailService),
+                new RollbackAction(integrasjonspunkt, integrasjonspunkt, mailService),
+                new SynchronizationMetrics(new SimpleMeterRegistry()),
+                new RunLog(properties));
+    }
+
+    @Setup(Level.Invocation)
+    public void runPreviousVersion() throws IOException {
+        FileUtils.cleanDirectory(home);
+        // A new directory each time, so the state store starts from scratch as well
+        File invocationHome = new File(home, Integer.toString(++invocations));
+        properties.getIntegrasjonspunkt().setHome(invocationHome.getAbsolutePath());
+        integrasjonspunkt.running = CURRENT_VERSION;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+        FileUtils.deleteQuietly(home);
+    }
+
+    @Benchmark
+    public String run() {
+        handler.run();
+        return integrasjonspunkt.running;
+    }
+
+    /**
+     * Starts and stops instantly, and reports the version of the last JAR it was started with.
+     */
+    private static class SimulatedIntegrasjonspunkt implements ActuatorService, LauncherService {
+
+        private String running;
+
+        @Override
+        public LaunchResult launchIntegrasjonspunkt(String jarPath) {
+            running = jarPath.replaceFirst(".*integrasjonspunkt-", "").replaceFirst("\\.jar$", "");
+            return new LaunchResult()
+                    .setJarPath(jarPath)
+                    .setStatus(LaunchStatus.SUCCESS)
+                    .setStartupLog("");
+        }
+
+        @Override
+        public boolean shutdownIntegrasjonspunkt() {
+            return shutdown();
+        }
+
+        @Override
+        public boolean createClassDataArchive(String jarPath) {
+            return false;
+        }
+
+        @Override
+        public HealthStatus getStatus() {
+            return running != null ? HealthStatus.UP : HealthStatus.DOWN;
+        }
+
+        @Override
+        public HealthStatus getStatus(int port) {
+            return getStatus();
+        }
+
+        @Override
+        public boolean shutdown() {
+            running = null;
+            return true;
+        }
+
+        @Override
+        public boolean requestShutdown() {
+            return shutdown();
+        }
+
+        @Override
+        public VersionInfo getVersionInfo() {
+            return VersionInfo.builder()
+                    .resolved(running != null)
+                    .version(running)
+                    .build();
+        }
+
+        @Override
+        public int getActivePort() {
+            return 9093;
+        }
+
+        @Override
+        public int getIdlePort() {
+            return 9094;
+        }
+
+        @Override
+        public void switchTo(int port) {
+        }
+
+        @Override
+        public void invalidate() {
+        }
+    }
+}
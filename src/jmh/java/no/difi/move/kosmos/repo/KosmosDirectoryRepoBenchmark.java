@@ -0,0 +1,52 @@
+package no.difi.move.kosmos.repo;
+
+import no.difi.move.kosmos.BenchmarkFixtures;
+import no.difi.move.kosmos.config.KosmosProperties;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the newest allowlisted version in a home directory with many earlier downloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class KosmosDirectoryRepoBenchmark {
+
+    @Param({"10", "1000"})
+    public int versions;
+
+    private File home;
+    private KosmosDirectoryRepo repo;
+
+    @Setup
+    public void setUp() throws IOException {
+        home = Files.createTempDirectory("kosmos-directory-benchmark").toFile();
+        KosmosProperties properties = BenchmarkFixtures.kosmosProperties(null, home);
+        VersionStateStore stateStore = new VersionStateStore(properties);
+        for (int i = 0; i < versions; i++) {
+            String version = String.format("2.%d.%d", i / 100, i % 100);
+            new File(home, "integrasjonspunkt-" + version + ".jar").createNewFile();
+            stateStore.allowlist(version);
+        }
+        repo = new KosmosDirectoryRepo(properties, stateStore);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(home);
+    }
+
+    @Benchmark
+    public File getAllowlistFile() {
+        return repo.getAllowlistFile();
+    }
+}
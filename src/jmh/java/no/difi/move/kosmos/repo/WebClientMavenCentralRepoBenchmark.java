@@ -0,0 +1,67 @@
+package no.difi.move.kosmos.repo;
+
+import no.difi.move.kosmos.BenchmarkFixtures;
+import no.difi.move.kosmos.domain.ArtifactBundle;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Download throughput from a local stub repository to disk. Each operation fetches the checksums and the signature
+ * and downloads the whole file, the way a synchronization does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WebClientMavenCentralRepoBenchmark {
+
+    @Param({"1", "100"})
+    public int sizeInMb;
+
+    private MockWebServer server;
+    private File home;
+    private WebClientMavenCentralRepo repo;
+    private Path destination;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] jar = new byte[sizeInMb * 1024 * 1024];
+        new Random(42).nextBytes(jar);
+        server = new MockWebServer();
+        server.setDispatcher(BenchmarkFixtures.repository(jar, BenchmarkFixtures.signature()));
+        server.start();
+        home = Files.createTempDirectory("kosmos-download-benchmark").toFile();
+        destination = new File(home, "integrasjonspunkt.jar").toPath();
+        repo = new WebClientMavenCentralRepo(BenchmarkFixtures.kosmosProperties(server.url("/").url(), home));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+        FileUtils.deleteQuietly(home);
+    }
+
+    @Benchmark
+    public ArtifactBundle fetchArtifactBundle() {
+        return repo.fetchArtifactBundle("2.2.0", destination, bundle -> new DownloadListener() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public void update(ByteBuffer data) {
+            }
+        }).block();
+    }
+}
@@ -0,0 +1,53 @@
+package no.difi.move.kosmos.service.codesigner;
+
+import no.difi.move.kosmos.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature verification of the signed Cucumber distribution, including loading the public key ring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GpgServiceImplBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private GpgServiceImpl gpgService;
+    private File home;
+    private byte[] jar;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        home = Files.createTempDirectory("kosmos-gpg-benchmark").toFile();
+        jar = BenchmarkFixtures.read(BenchmarkFixtures.SIGNED_JAR);
+        signature = BenchmarkFixtures.signature();
+        gpgService = new GpgServiceImpl(BenchmarkFixtures.kosmosProperties(null, home), new PublicKeyVerifierImpl());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(home.toPath());
+    }
+
+    /**
+     * Verification as the download does it, fed the distribution in the chunks it arrives in.
+     */
+    @Benchmark
+    public boolean verify() {
+        SignedDataVerifier verifier = gpgService.createVerifier(signature);
+        for (int offset = 0; offset < jar.length; offset += CHUNK_SIZE) {
+            verifier.update(ByteBuffer.wrap(jar, offset, Math.min(CHUNK_SIZE, jar.length - offset)));
+        }
+        return verifier.verify();
+    }
+}
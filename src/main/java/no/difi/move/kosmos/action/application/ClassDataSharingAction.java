@@ -0,0 +1,41 @@
+package no.difi.move.kosmos.action.application;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.service.launcher.LauncherService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the class data archive of a newly downloaded and validated version. Without an archive the version
+ * starts as it would anyway, so a failure here is logged and does not stop the upgrade.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ClassDataSharingAction implements ApplicationAction {
+
+    private final KosmosProperties properties;
+    private final LauncherService launcherService;
+
+    @Override
+    public Application apply(Application application) {
+        log.trace("Calling ClassDataSharingAction.apply() on application {}", application);
+        if (!properties.getIntegrasjonspunkt().getClassDataSharing().isEnabled()) {
+            return application;
+        }
+        if (!application.isMarkedForValidation()) {
+            log.info("Skipping class data archive, as no new distribution has been downloaded");
+            return application;
+        }
+        try {
+            if (!launcherService.createClassDataArchive(application.getLatest().getFile().getAbsolutePath())) {
+                log.warn("No class data archive for version {}, it will start without one", application.getLatest().getVersion());
+            }
+        } catch (Exception e) {
+            log.warn("Could not create a class data archive for version {}", application.getLatest().getVersion(), e);
+        }
+        return application;
+    }
+}
@@ -0,0 +1,48 @@
+package no.difi.move.kosmos.action.application;
+
+import lombok.SneakyThrows;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import no.difi.move.kosmos.repo.DownloadListener;
+import no.difi.move.kosmos.service.codesigner.SignedDataVerifier;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes checksums and verifies the signature of a distribution while it is being downloaded,
+ * so that it never has to be read back from disk.
+ */
+class DownloadVerifier implements DownloadListener {
+
+    private final MessageDigest sha1;
+    private final MessageDigest md5;
+    private final SignedDataVerifier signatureVerifier;
+
+    @SneakyThrows(NoSuchAlgorithmException.class)
+    DownloadVerifier(SignedDataVerifier signatureVerifier) {
+        this.sha1 = MessageDigest.getInstance(ValidateAction.ALGORITHM.SHA1.getName());
+        this.md5 = MessageDigest.getInstance(ValidateAction.ALGORITHM.MD5.getName());
+        this.signatureVerifier = signatureVerifier;
+    }
+
+    @Override
+    public void reset() {
+        sha1.reset();
+        md5.reset();
+        signatureVerifier.reset();
+    }
+
+    @Override
+    public void update(ByteBuffer data) {
+        sha1.update(data.duplicate());
+        md5.update(data.duplicate());
+        signatureVerifier.update(data.duplicate());
+    }
+
+    void applyTo(ApplicationMetadata metadata) {
+        metadata.setSha1(sha1.digest())
+                .setMd5(md5.digest())
+                .setSignatureVerified(signatureVerifier.verify());
+    }
+}
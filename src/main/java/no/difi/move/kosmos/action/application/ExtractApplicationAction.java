@@ -0,0 +1,39 @@
+package no.difi.move.kosmos.action.application;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.service.launcher.ExplodedLayout;
+import org.springframework.stereotype.Component;
+
+/**
+ * Extracts the validated JAR of the latest version, for it to be launched from, and cleans up after versions whose
+ * JAR has been deleted. A version that can not be extracted is launched from the JAR, so a failure here is logged
+ * and does not stop the upgrade.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ExtractApplicationAction implements ApplicationAction {
+
+    private final KosmosProperties properties;
+    private final ExplodedLayout explodedLayout;
+
+    @Override
+    public Application apply(Application application) {
+        log.trace("Calling ExtractApplicationAction.apply() on application {}", application);
+        if (!properties.getIntegrasjonspunkt().isExploded()) {
+            return application;
+        }
+        try {
+            if (!explodedLayout.extract(application.getLatest().getFile().getAbsolutePath())) {
+                log.warn("Version {} will be launched from the JAR", application.getLatest().getVersion());
+            }
+            explodedLayout.deleteOrphaned();
+        } catch (Exception e) {
+            log.warn("Could not extract version {}, it will be launched from the JAR", application.getLatest().getVersion(), e);
+        }
+        return application;
+    }
+}
@@ -4,13 +4,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.difi.move.kosmos.action.KosmosActionException;
 import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.ArtifactBundle;
 import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
 import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
 import no.difi.move.kosmos.repo.MavenCentralRepo;
+import no.difi.move.kosmos.service.codesigner.GpgService;
 import no.difi.move.kosmos.util.KosmosUtils;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 @Slf4j
@@ -19,6 +24,7 @@ public class PrepareApplicationAction implements ApplicationAction {
     private final KosmosProperties properties;
     private final MavenCentralRepo mavenCentralRepo;
     private final KosmosDirectoryRepo kosmosDirectoryRepo;
+    private final GpgService gpgService;
 
     public Application apply(Application application) {
         log.info("Preparing application");
@@ -27,7 +33,7 @@ public class PrepareApplicationAction implements ApplicationAction {
         log.debug("The latest version is in file {}", downloadJarFile);
         checkBlocklist(downloadJarFile);
 
-        if (!downloadJarFile.exists()) {
+        if (!isReady(application.getLatest().getVersion(), downloadJarFile)) {
             log.info("Latest version is different from current, and will be downloaded");
             try {
                 doDownload(application, downloadJarFile);
@@ -41,6 +47,22 @@ public class PrepareApplicationAction implements ApplicationAction {
         return application;
     }
 
+    /**
+     * A JAR is ready when it has passed validation, or has already been launched successfully.
+     */
+    private boolean isReady(String version, File downloadJarFile) {
+        if (!downloadJarFile.exists()) {
+            return false;
+        }
+        String allowlistVersion = kosmosDirectoryRepo.getAllowlistVersion();
+        if (kosmosDirectoryRepo.isVerified(downloadJarFile) || (allowlistVersion != null && allowlistVersion.equals(version))) {
+            log.debug("Found a verified download in {}", downloadJarFile);
+            return true;
+        }
+        log.info("Found a download in {} that has not been verified", downloadJarFile);
+        return false;
+    }
+
     private void checkBlocklist(File downloadFile) {
         boolean blocklistEnabled = properties.getBlocklist().isEnabled();
         if (!blocklistEnabled) {
@@ -48,12 +70,23 @@ public class PrepareApplicationAction implements ApplicationAction {
         }
         if (blocklistEnabled && kosmosDirectoryRepo.isBlockListed(downloadFile)) {
             throw new KosmosActionException(
-                    String.format("The latest version is block listed! Remove %s to allow version.",
-                            kosmosDirectoryRepo.getBlocklistPath(downloadFile).getAbsolutePath()));
+                    String.format("The latest version is block listed until %s!",
+                            kosmosDirectoryRepo.getBlocklistedUntil(downloadFile)));
         }
     }
 
     private void doDownload(Application application, File destination) {
-        mavenCentralRepo.downloadJAR(application.getLatest().getVersion(), destination.toPath());
+        ApplicationMetadata latest = application.getLatest();
+        AtomicReference<DownloadVerifier> verifier = new AtomicReference<>();
+        long start = System.nanoTime();
+        ArtifactBundle bundle = mavenCentralRepo.fetchArtifactBundle(latest.getVersion(), destination.toPath(), b -> {
+            log.trace("Downloaded signature {} ", b.getSignature());
+            verifier.set(new DownloadVerifier(gpgService.createVerifier(b.getSignature())));
+            return verifier.get();
+        }).block();
+        latest.setDownloadDuration(Duration.ofNanos(System.nanoTime() - start))
+                .setDownloadSize(destination.length());
+        verifier.get().applyTo(latest);
+        latest.setArtifactBundle(bundle);
     }
 }
@@ -2,9 +2,11 @@ package no.difi.move.kosmos.action.application;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
 import no.difi.move.kosmos.domain.HealthStatus;
 import no.difi.move.kosmos.domain.application.Application;
 import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.LauncherService;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -12,7 +14,9 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class ShutdownAction implements ApplicationAction {
 
+    private final KosmosProperties properties;
     private final ActuatorService actuatorService;
+    private final LauncherService launcherService;
 
     @Override
     public Application apply(Application application) {
@@ -25,6 +29,10 @@ public class ShutdownAction implements ApplicationAction {
     }
 
     private boolean needToShutdown(Application application) {
+        if (properties.getIntegrasjonspunkt().getBlueGreen().isEnabled()) {
+            log.info("Blue/green upgrade enabled, the running version is shut down once the new one is up");
+            return false;
+        }
         return application.getCurrent() != null
                 && !application.isSameVersion()
                 && actuatorService.getStatus() == HealthStatus.UP;
@@ -32,7 +40,7 @@ public class ShutdownAction implements ApplicationAction {
 
     private void doShutdown() {
         log.info("Shutdown running version");
-        if (!actuatorService.shutdown()) {
+        if (!launcherService.shutdownIntegrasjonspunkt()) {
             log.warn("Shutdown failed!");
         }
     }
@@ -46,7 +46,7 @@ public class StartAction implements ApplicationAction {
             log.info("Launch failed, the version will be blocklisted");
             kosmosDirectoryRepo.blockList(jarFile);
 
-            if (actuatorService.getStatus() == HealthStatus.UP) {
+            if (actuatorService.getStatus() == HealthStatus.UP && !properties.getIntegrasjonspunkt().getBlueGreen().isEnabled()) {
                 log.trace("The application started in the mean time, but is now shutting down");
                 actuatorService.shutdown();
             }
@@ -66,7 +66,7 @@ public class StartAction implements ApplicationAction {
 
         mailService.sendMail(
                 subject,
-                launchResult.getStartupLog()
+                getMailContent(launchResult)
         );
 
         application.setLaunchResult(launchResult);
@@ -74,6 +74,13 @@ public class StartAction implements ApplicationAction {
         return application;
     }
 
+    private static String getMailContent(LaunchResult launchResult) {
+        if (launchResult.getFailure() == null) {
+            return launchResult.getStartupLog();
+        }
+        return String.format("Startup failed on %s%n%n%s", launchResult.getFailure(), launchResult.getStartupLog());
+    }
+
     private boolean isAlreadyRunning(Application application) {
         return application.getCurrent() != null
                 && application.isSameVersion()
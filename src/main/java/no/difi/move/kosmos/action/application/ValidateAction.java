@@ -5,28 +5,25 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.difi.move.kosmos.action.KosmosActionException;
 import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.ArtifactBundle;
 import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
 import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
-import no.difi.move.kosmos.repo.MavenCentralRepo;
-import no.difi.move.kosmos.service.codesigner.GpgService;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
 
+/**
+ * Compares the checksums and signature verification recorded while downloading against the published ones.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 @Validated
 public class ValidateAction implements ApplicationAction {
 
-    private final MavenCentralRepo mavenCentralRepo;
-    private final GpgService gpgService;
     private final KosmosDirectoryRepo deployDirectoryRepo;
     private final KosmosProperties properties;
 
@@ -38,18 +35,19 @@ public class ValidateAction implements ApplicationAction {
         }
         log.info("Validating application");
         log.trace("Calling ValidateAction.apply on application {}", application);
+        ApplicationMetadata latest = application.getLatest();
         try {
-            assertChecksumIsCorrect(application, ALGORITHM.SHA1);
-            assertChecksumIsCorrect(application, ALGORITHM.MD5);
-            String signature = downloadSignature(application.getLatest().getVersion());
-            boolean verify = gpgService.verify(application.getLatest().getFile().getAbsolutePath(), signature);
-            if (verify) {
+            ArtifactBundle bundle = Objects.requireNonNull(latest.getArtifactBundle(), "No checksums fetched for the downloaded distribution");
+            assertChecksumIsCorrect(ALGORITHM.SHA1, bundle.getSha1(), latest.getSha1());
+            assertChecksumIsCorrect(ALGORITHM.MD5, bundle.getMd5(), latest.getMd5());
+            if (Boolean.TRUE.equals(latest.getSignatureVerified())) {
                 log.trace("Signature has been successfully verified.");
+                deployDirectoryRepo.markVerified(latest.getFile(), latest.getSha1());
                 return application;
             }
             if(properties.getBlocklist().isEnabled()) {
                 log.trace("Signature could not be verified.. Blocklisting version.");
-                deployDirectoryRepo.blockList(application.getLatest().getFile());
+                deployDirectoryRepo.blockList(latest.getFile());
             }
             throw new KosmosActionException("Invalid artifact signature");
         } catch (Exception ex) {
@@ -57,34 +55,18 @@ public class ValidateAction implements ApplicationAction {
         }
     }
 
-    private void assertChecksumIsCorrect(Application application, ALGORITHM algorithm) throws IOException, NoSuchAlgorithmException {
-        log.trace("Calling ValidateAction.assertChecksumIsCorrect() with args: application: {}, algorithm: {}", application, algorithm);
-        byte[] hashFromRepo = getHashFromRepo(application.getLatest().getVersion(), algorithm);
+    private void assertChecksumIsCorrect(ALGORITHM algorithm, byte[] hashFromRepo, byte[] fileHash) {
+        log.trace("Calling ValidateAction.assertChecksumIsCorrect() with args: algorithm: {}", algorithm);
         log.trace("Hash from repo: {}", hashFromRepo);
-        byte[] fileHash = getFileHash(application.getLatest().getFile(), algorithm);
         log.trace("File hash: {}", fileHash);
-        if (!MessageDigest.isEqual(fileHash, hashFromRepo)) {
+        if (fileHash == null || hashFromRepo == null || !MessageDigest.isEqual(fileHash, hashFromRepo)) {
             throw new KosmosActionException(String.format("%s verification failed", algorithm.getName()));
         }
     }
 
-    @SuppressWarnings("StatementWithEmptyBody")
-    private byte[] getFileHash(File file, ALGORITHM algorithm) throws IOException, NoSuchAlgorithmException {
-        byte[] buffer = new byte[8192];
-        MessageDigest instance = MessageDigest.getInstance(algorithm.getName());
-        try (DigestInputStream digestInputStream = new DigestInputStream(new FileInputStream(file), instance)) {
-            while (digestInputStream.read(buffer) != -1) ;
-            return instance.digest();
-        }
-    }
-
-    private byte[] getHashFromRepo(String applicationVersion, ALGORITHM algorithm) {
-        return mavenCentralRepo.getChecksum(applicationVersion, "." + algorithm.getFileNameSuffix());
-    }
-
     @RequiredArgsConstructor
     @Getter
-    private enum ALGORITHM {
+    enum ALGORITHM {
         MD5("MD5", "md5"),
         SHA1("SHA-1", "sha1");
 
@@ -92,10 +74,4 @@ public class ValidateAction implements ApplicationAction {
         private final String fileNameSuffix;
     }
 
-    private String downloadSignature(String version) {
-        String signature = mavenCentralRepo.downloadSignature(version);
-        log.trace("Downloaded signature {} ", signature);
-        return signature;
-    }
-
 }
@@ -0,0 +1,26 @@
+package no.difi.move.kosmos.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+/**
+ * Starts a new version next to the running one, on the port it is not using, and shuts the old one down
+ * only after the new one reports UP. Both instances share the home directory during the overlap, so this
+ * is only safe for setups where the integrasjonspunkt does not lock files or ports besides server.port there.
+ */
+@Data
+public class BlueGreenProperties {
+
+    private boolean enabled;
+
+    /**
+     * Port used every other upgrade, alternating with the port of kosmos.integrasjonspunkt.baseURL.
+     */
+    @NotNull
+    @Positive
+    @Max(65535)
+    private Integer alternatePort;
+}
@@ -0,0 +1,34 @@
+package no.difi.move.kosmos.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+/**
+ * Starts each newly downloaded version once on its own, with a port and profile of its own, and keeps the
+ * classes it loaded in an archive next to the JAR, which every later launch of that version starts from.
+ * Needs Java 13 or later for the integrasjonspunkt. The training run shares the home directory with the running
+ * instance and reads the same local properties, so the training profile must not be one that picks up messages.
+ */
+@Data
+public class ClassDataSharingProperties {
+
+    private boolean enabled;
+
+    @NotNull
+    @Positive
+    @Max(65535)
+    private Integer trainingPort;
+
+    @NotNull
+    private String trainingProfile;
+
+    /**
+     * How long the training run may take to start, after which it is stopped without an archive.
+     */
+    @NotNull
+    @Positive
+    private Integer trainingTimeoutInMs;
+}
@@ -1,14 +1,29 @@
 package no.difi.move.kosmos.config;
 
 import lombok.Data;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Data
 public class IntegrasjonspunktProperties {
 
+    /**
+     * What JVM options and arguments may contain besides plain text: {version}, {home}, {port} and {profile},
+     * replaced by the version being launched, the home directory, the port it will listen on and the profile.
+     */
+    public static final String LAUNCH_TEMPLATE = "([^{}]|\\{(version|home|port|profile)\\})*";
+    private static final String LAUNCH_TEMPLATE_MESSAGE =
+            "may only use the placeholders {version}, {home}, {port} and {profile}, and no other braces";
+
     @NotNull
     private String home;
 
@@ -31,4 +46,71 @@ public class IntegrasjonspunktProperties {
 
     @NotNull
     private boolean includeLog;
+
+    /**
+     * Java installation integrasjonspunkt is run with. Not set means the java found on the PATH.
+     */
+    private String javaHome;
+
+    /**
+     * Options for the JVM integrasjonspunkt runs in, such as heap size and garbage collector.
+     */
+    private List<@Pattern(regexp = LAUNCH_TEMPLATE, message = LAUNCH_TEMPLATE_MESSAGE) String> jvmOptions = new ArrayList<>();
+
+    /**
+     * Arguments for integrasjonspunkt, after the ones Kosmos always passes.
+     */
+    private List<@Pattern(regexp = LAUNCH_TEMPLATE, message = LAUNCH_TEMPLATE_MESSAGE) String> arguments = new ArrayList<>();
+
+    /**
+     * Launches integrasjonspunkt from a copy of the validated JAR extracted next to it, instead of from the JAR.
+     */
+    private boolean exploded;
+
+    @Valid
+    @NestedConfigurationProperty
+    private BlueGreenProperties blueGreen = new BlueGreenProperties();
+
+    @Valid
+    @NestedConfigurationProperty
+    private ClassDataSharingProperties classDataSharing = new ClassDataSharingProperties();
+
+    /**
+     * Most lines of startup output kept after the first lines, for the upgrade mail.
+     */
+    @NotNull
+    @Positive
+    private Integer startupLogMaxLines;
+
+    /**
+     * Most bytes of startup output kept after the first lines, in UTF-8. Also the most kept of any single line.
+     */
+    @NotNull
+    @Positive
+    private Integer startupLogMaxBytes;
+
+    /**
+     * Size at which the file the output of integrasjonspunkt is written to after startup is rotated.
+     */
+    @NotNull
+    @Positive
+    private Integer consoleLogMaxBytes;
+
+    /**
+     * Number of output files kept, including the one being written.
+     */
+    @NotNull
+    @Positive
+    private Integer consoleLogFiles;
+
+    /**
+     * Regular expressions for startup output that means the launch has failed, by the name reported for them.
+     * The launch is given up as soon as one matches, instead of at the timeout.
+     */
+    private Map<String, String> fatalStartupPatterns = new LinkedHashMap<>();
+
+    /**
+     * Regular expressions for startup output that shows the launch is getting on. Empty means every line does.
+     */
+    private List<String> startupProgressPatterns = new ArrayList<>();
 }
@@ -12,6 +12,7 @@ import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import java.net.URL;
 
 @Data
@@ -45,6 +46,13 @@ public class KosmosProperties {
     @Positive
     private Integer actuatorReadTimeoutInMs;
 
+    /**
+     * How long health and version of the running instance are reused before being fetched again.
+     */
+    @NotNull
+    @Positive
+    private Integer actuatorSnapshotTtlInMs;
+
     @NotNull
     @Positive
     private Integer shutdownRetries;
@@ -53,14 +61,53 @@ public class KosmosProperties {
     @Positive
     private Integer shutdownPollIntervalInMs;
 
+    /**
+     * First wait between health checks after shutdown is requested. Doubled up to shutdownPollIntervalInMs.
+     */
+    @NotNull
+    @Positive
+    private Integer shutdownInitialPollIntervalInMs;
+
+    /**
+     * How long a process that did not shut down when asked is given to stop after SIGTERM, before it is killed.
+     */
+    @NotNull
+    @Positive
+    private Integer shutdownTerminateTimeoutInMs;
+
+    /**
+     * How long to wait for a killed process to exit.
+     */
+    @NotNull
+    @Positive
+    private Integer shutdownKillTimeoutInMs;
+
+    /**
+     * Longest a launch may take, however much progress it reports.
+     */
     @NotNull
     @Positive
     private Integer launchTimeoutInMs;
 
+    /**
+     * A launch that reports no startup progress for this long is considered hung and given up, as is one that
+     * is not UP this long after it has reported that it has started.
+     */
+    @NotNull
+    @Positive
+    private Integer launchQuietPeriodInMs;
+
     @NotNull
     @Positive
     private Integer launchPollIntervalInMs;
 
+    /**
+     * First wait between health checks after launch. Doubled up to launchPollIntervalInMs.
+     */
+    @NotNull
+    @Positive
+    private Integer launchInitialPollIntervalInMs;
+
     @NotNull
     @Positive
     private Integer mavenCentralConnectTimeoutInMs;
@@ -69,10 +116,24 @@ public class KosmosProperties {
     @Positive
     private Integer mavenCentralReadTimeoutInMs;
 
+    /**
+     * Number of times an interrupted download is resumed from where it stopped.
+     */
+    @NotNull
+    @PositiveOrZero
+    private Integer mavenCentralDownloadRetries;
+
     @NotNull
     @NotEmpty
     private String schedulerCronExpression;
 
+    /**
+     * When to look for a new version and download and validate it ahead of the scheduled run. "-" disables prefetching.
+     */
+    @NotNull
+    @NotEmpty
+    private String prefetchCronExpression;
+
     @Valid
     @NestedConfigurationProperty
     private BlocklistProperties blocklist;
@@ -92,4 +153,12 @@ public class KosmosProperties {
     @NestedConfigurationProperty
     private EnvironmentProperties environment;
 
+    @Valid
+    @NestedConfigurationProperty
+    private MetricsProperties metrics;
+
+    @Valid
+    @NestedConfigurationProperty
+    private SupervisorProperties supervisor;
+
 }
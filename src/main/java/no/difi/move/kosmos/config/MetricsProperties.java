@@ -0,0 +1,19 @@
+package no.difi.move.kosmos.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+@Data
+public class MetricsProperties {
+
+    /**
+     * File the metrics are written to in the Prometheus text format. Not set means no export.
+     */
+    private String file;
+
+    @NotNull
+    @Positive
+    private Integer exportIntervalInMs;
+}
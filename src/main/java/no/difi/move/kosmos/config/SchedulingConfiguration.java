@@ -2,6 +2,7 @@ package no.difi.move.kosmos.config;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @ConditionalOnProperty(
@@ -9,5 +10,6 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 )
 @Configuration
 @EnableScheduling
+@EnableAsync
 public class SchedulingConfiguration {
 }
@@ -0,0 +1,28 @@
+package no.difi.move.kosmos.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+@Data
+public class SupervisorProperties {
+
+    /**
+     * Wait before restarting integrasjonspunkt after it exits. Doubled for each restart in a row, up to restartMaxBackoffInMs.
+     */
+    @NotNull
+    @Positive
+    private Integer restartInitialBackoffInMs;
+
+    @NotNull
+    @Positive
+    private Integer restartMaxBackoffInMs;
+
+    /**
+     * How long integrasjonspunkt must have been running for an exit to start the backoff over.
+     */
+    @NotNull
+    @Positive
+    private Integer stableAfterInMs;
+}
@@ -0,0 +1,16 @@
+package no.difi.move.kosmos.domain;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Checksums and detached signature published next to a distribution in the repository.
+ */
+@Builder
+@Value
+public class ArtifactBundle {
+    String version;
+    byte[] sha1;
+    byte[] md5;
+    String signature;
+}
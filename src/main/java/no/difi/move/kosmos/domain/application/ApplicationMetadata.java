@@ -1,12 +1,24 @@
 package no.difi.move.kosmos.domain.application;
 
 import lombok.Data;
+import lombok.ToString;
+import no.difi.move.kosmos.domain.ArtifactBundle;
 
 import java.io.File;
+import java.time.Duration;
 
 @Data
 public class ApplicationMetadata {
 
     private String version;
     private File file;
+    @ToString.Exclude
+    private byte[] sha1;
+    @ToString.Exclude
+    private byte[] md5;
+    private Boolean signatureVerified;
+    @ToString.Exclude
+    private ArtifactBundle artifactBundle;
+    private Long downloadSize;
+    private Duration downloadDuration;
 }
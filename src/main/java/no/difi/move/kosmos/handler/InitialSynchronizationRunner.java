@@ -0,0 +1,49 @@
+package no.difi.move.kosmos.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.service.launcher.ProcessAdopter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the first synchronization once Kosmos is up, on the task executor rather than the startup thread,
+ * so that the download and launch wait do not hold back the rest of the context.
+ * An integrasjonspunkt launched by the previous Kosmos is adopted, and a synchronization it left unfinished
+ * is recovered first.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        value = "app.scheduling.enable", havingValue = "true", matchIfMissing = true
+)
+public class InitialSynchronizationRunner {
+
+    private final ProcessAdopter processAdopter;
+    private final RunRecovery runRecovery;
+    private final SynchronizationHandler synchronizationHandler;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            processAdopter.adopt();
+        } catch (Exception e) {
+            log.error("Could not adopt the running integrasjonspunkt", e);
+        }
+        try {
+            // Recovery may stop and launch integrasjonspunkt, so it must not overlap a synchronization or restart
+            if (!synchronizationHandler.runExclusively(runRecovery::recover)) {
+                log.info("Skipping recovery, a synchronization is already in progress");
+            }
+        } catch (Exception e) {
+            log.error("Could not recover the interrupted synchronization", e);
+        }
+        log.info("Running initial synchronization");
+        synchronizationHandler.scheduledRun();
+    }
+}
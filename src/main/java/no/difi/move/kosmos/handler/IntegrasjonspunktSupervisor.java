@@ -0,0 +1,253 @@
+package no.difi.move.kosmos.handler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.config.SupervisorProperties;
+import no.difi.move.kosmos.domain.HealthStatus;
+import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
+import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.IntegrasjonspunktLaunchedEvent;
+import no.difi.move.kosmos.service.launcher.LauncherService;
+import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
+import no.difi.move.kosmos.service.launcher.dto.LaunchStatus;
+import no.difi.move.kosmos.service.mail.MailService;
+import no.difi.move.kosmos.util.KosmosUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.zeroturnaround.exec.ProcessResult;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds on to the integrasjonspunkt process Kosmos launched last, and restarts the allowlisted version as soon as
+ * that process exits, instead of waiting for the next scheduled synchronization.
+ * Restarts in a row back off exponentially, and never overlap a synchronization.
+ * Exits during a synchronization are left to the synchronization, which launches a new process.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(
+        value = "app.scheduling.enable", havingValue = "true", matchIfMissing = true
+)
+public class IntegrasjonspunktSupervisor {
+
+    static final String UPTIME_GAUGE = "kosmos.supervisor.uptime";
+    static final String RESTART_COUNTER = "kosmos.supervisor.restarts";
+
+    private final KosmosProperties properties;
+    private final SynchronizationHandler synchronizationHandler;
+    private final ActuatorService actuatorService;
+    private final LauncherService launcherService;
+    private final KosmosDirectoryRepo kosmosDirectoryRepo;
+    private final MailService mailService;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService watchers;
+    private final ScheduledExecutorService restarts;
+    private final AtomicReference<Supervised> current = new AtomicReference<>();
+    private final AtomicInteger restartsInARow = new AtomicInteger();
+
+    private volatile boolean stopped;
+    private volatile boolean restarting;
+
+    @Autowired
+    public IntegrasjonspunktSupervisor(KosmosProperties properties,
+                                       SynchronizationHandler synchronizationHandler,
+                                       ActuatorService actuatorService,
+                                       LauncherService launcherService,
+                                       KosmosDirectoryRepo kosmosDirectoryRepo,
+                                       MailService mailService,
+                                       MeterRegistry meterRegistry) {
+        this(properties, synchronizationHandler, actuatorService, launcherService, kosmosDirectoryRepo, mailService,
+                meterRegistry, threadFactory("kosmos-supervisor-watcher-%d"), threadFactory("kosmos-supervisor-%d"));
+    }
+
+    IntegrasjonspunktSupervisor(KosmosProperties properties,
+                                SynchronizationHandler synchronizationHandler,
+                                ActuatorService actuatorService,
+                                LauncherService launcherService,
+                                KosmosDirectoryRepo kosmosDirectoryRepo,
+                                MailService mailService,
+                                MeterRegistry meterRegistry,
+                                ThreadFactory watcherThreads,
+                                ThreadFactory restartThreads) {
+        this.properties = properties;
+        this.synchronizationHandler = synchronizationHandler;
+        this.actuatorService = actuatorService;
+        this.launcherService = launcherService;
+        this.kosmosDirectoryRepo = kosmosDirectoryRepo;
+        this.mailService = mailService;
+        this.meterRegistry = meterRegistry;
+        // One watcher per process; blue-green keeps two running for a moment
+        this.watchers = Executors.newCachedThreadPool(watcherThreads);
+        this.restarts = Executors.newSingleThreadScheduledExecutor(restartThreads);
+        Gauge.builder(UPTIME_GAUGE, this, supervisor -> supervisor.getUptime().toMillis() / 1000.0)
+                .description("Time since the supervised integrasjonspunkt was launched, 0 when it is not running")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private static ThreadFactory threadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder()
+                .setNameFormat(nameFormat)
+                .setDaemon(true)
+                .build();
+    }
+
+    @EventListener
+    public void onLaunched(IntegrasjonspunktLaunchedEvent event) {
+        Supervised supervised = new Supervised(event.getJarPath(), event.getProcess());
+        current.set(supervised);
+        if (!restarting) {
+            // Launched by a synchronization, so not part of a crash loop
+            restartsInARow.set(0);
+        }
+        log.debug("Supervising {}", supervised.jarPath);
+        watchers.execute(() -> watch(supervised));
+    }
+
+    /**
+     * Time since the supervised process was launched, or zero if it has exited or there is none.
+     */
+    public Duration getUptime() {
+        Supervised supervised = current.get();
+        if (supervised == null || supervised.process.isDone()) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(System.nanoTime() - supervised.launchedAt);
+    }
+
+    public long getRestartCount() {
+        return (long) (meterRegistry.counter(RESTART_COUNTER, "outcome", "success").count()
+                + meterRegistry.counter(RESTART_COUNTER, "outcome", "failure").count());
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        restarts.shutdownNow();
+        watchers.shutdownNow();
+    }
+
+    private void watch(Supervised supervised) {
+        try {
+            supervised.process.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | CancellationException e) {
+            log.debug("Supervised process ended abnormally", e);
+        }
+        Duration uptime = Duration.ofNanos(System.nanoTime() - supervised.launchedAt);
+        if (stopped || current.get() != supervised) {
+            return;
+        }
+        log.warn("Integrasjonspunkt {} exited after {}", supervised.jarPath, uptime);
+        if (uptime.toMillis() >= getSupervisorProperties().getStableAfterInMs()) {
+            restartsInARow.set(0);
+        }
+        scheduleRestart(supervised);
+    }
+
+    private void scheduleRestart(Supervised exited) {
+        SupervisorProperties supervisorProperties = getSupervisorProperties();
+        int attempt = Math.min(restartsInARow.getAndIncrement(), 30);
+        long delayInMs = Math.min((long) supervisorProperties.getRestartInitialBackoffInMs() << attempt,
+                supervisorProperties.getRestartMaxBackoffInMs());
+        log.info("Restarting integrasjonspunkt in {} ms", delayInMs);
+        schedule(exited, delayInMs);
+    }
+
+    private void schedule(Supervised exited, long delayInMs) {
+        if (!stopped) {
+            restarts.schedule(() -> restart(exited), delayInMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void restart(Supervised exited) {
+        if (current.get() != exited) {
+            return;
+        }
+        try {
+            if (!synchronizationHandler.runExclusively(() -> relaunch(exited))) {
+                log.info("Synchronization in progress, postponing restart");
+                schedule(exited, getSupervisorProperties().getRestartInitialBackoffInMs());
+            }
+        } catch (Exception e) {
+            log.error("Restart of integrasjonspunkt failed", e);
+            scheduleRestart(exited);
+        }
+    }
+
+    private void relaunch(Supervised exited) {
+        // A synchronization may have launched a new process while this restart was waiting
+        if (current.get() != exited) {
+            return;
+        }
+        if (actuatorService.getStatus() == HealthStatus.UP) {
+            log.info("Integrasjonspunkt is UP, but not launched by Kosmos. Leaving it alone");
+            return;
+        }
+        String jarPath = getRestartJarPath(exited);
+        LaunchResult launchResult;
+        restarting = true;
+        try {
+            launchResult = launcherService.launchIntegrasjonspunkt(jarPath);
+        } finally {
+            restarting = false;
+        }
+        boolean success = launchResult.getStatus() == LaunchStatus.SUCCESS;
+        meterRegistry.counter(RESTART_COUNTER, "outcome", success ? "success" : "failure").increment();
+
+        String subject = String.format("Restart %s %s", launchResult.getStatus().name(), new File(jarPath).getName());
+        log.info(subject);
+        mailService.sendMail(subject, launchResult.getStartupLog());
+
+        if (!success) {
+            scheduleRestart(exited);
+        }
+    }
+
+    private String getRestartJarPath(Supervised exited) {
+        String version = kosmosDirectoryRepo.getAllowlistVersion();
+        if (version != null) {
+            File allowlisted = kosmosDirectoryRepo.getFile(version, KosmosUtils.DOWNLOAD_JAR_FILE_NAME);
+            if (allowlisted.exists()) {
+                return allowlisted.getAbsolutePath();
+            }
+        }
+        return exited.jarPath;
+    }
+
+    private SupervisorProperties getSupervisorProperties() {
+        return properties.getSupervisor();
+    }
+
+    private static class Supervised {
+
+        private final String jarPath;
+        private final Future<ProcessResult> process;
+        private final long launchedAt = System.nanoTime();
+
+        private Supervised(String jarPath, Future<ProcessResult> process) {
+            this.jarPath = jarPath;
+            this.process = process;
+        }
+    }
+}
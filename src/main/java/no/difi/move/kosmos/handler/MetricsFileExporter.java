@@ -0,0 +1,43 @@
+package no.difi.move.kosmos.handler;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Kosmos has no web server, so the metrics are written in the Prometheus text format to a file
+ * that a node_exporter textfile collector, or any other agent, can pick up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty("kosmos.metrics.file")
+public class MetricsFileExporter {
+
+    private final KosmosProperties properties;
+    private final PrometheusMeterRegistry meterRegistry;
+
+    @Scheduled(fixedDelayString = "${kosmos.metrics.exportIntervalInMs}")
+    public void export() {
+        Path file = Paths.get(properties.getMetrics().getFile());
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(temporaryFile, meterRegistry.scrape().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.trace("Exported metrics to {}", file);
+        } catch (IOException e) {
+            log.warn("Could not export metrics to {}", file, e);
+        }
+    }
+}
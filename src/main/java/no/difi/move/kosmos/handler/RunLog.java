@@ -0,0 +1,128 @@
+package no.difi.move.kosmos.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Write-ahead log of the synchronization in progress. Each stage is recorded, and forced to disk, before it runs,
+ * together with the JAR of the version that was running when the synchronization started.
+ * A log without an end record means Kosmos stopped in the middle of a synchronization.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RunLog {
+
+    static final String FILE_NAME = "kosmos-run.log";
+    private static final String BEGIN = "BEGIN";
+    private static final String STAGE = "STAGE";
+    private static final String END = "END";
+    private static final String NONE = "-";
+
+    private final KosmosProperties properties;
+
+    @Value
+    public static class InterruptedRun {
+        String stage;
+        /**
+         * JAR of the version running before the synchronization, if known.
+         */
+        String currentJar;
+    }
+
+    public void begin() {
+        write(BEGIN, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Wraps the action so that entering the stage is recorded first.
+     */
+    public Function<Application, Application> track(String stage, Function<Application, Application> action) {
+        return application -> {
+            write(String.join(" ", STAGE, stage, getCurrentJar(application)), StandardOpenOption.APPEND);
+            return action.apply(application);
+        };
+    }
+
+    public void end() {
+        write(END, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * The stage the last synchronization was in when Kosmos stopped, if it did not finish.
+     */
+    public Optional<InterruptedRun> getInterruptedRun() {
+        Path file = getFile();
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || END.equals(lines.get(lines.size() - 1))) {
+                return Optional.empty();
+            }
+            for (int i = lines.size() - 1; i >= 0; i--) {
+                String[] fields = lines.get(i).split(" ", 3);
+                if (fields.length == 3 && STAGE.equals(fields[0])) {
+                    return Optional.of(new InterruptedRun(fields[1], NONE.equals(fields[2]) ? null : fields[2]));
+                }
+            }
+            return Optional.of(new InterruptedRun(BEGIN, null));
+        } catch (IOException e) {
+            log.warn("Could not read {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    public void clear() {
+        try {
+            Files.deleteIfExists(getFile());
+        } catch (IOException e) {
+            log.warn("Could not remove {}", getFile(), e);
+        }
+    }
+
+    private static String getCurrentJar(Application application) {
+        return Optional.ofNullable(application)
+                .map(Application::getCurrent)
+                .map(ApplicationMetadata::getFile)
+                .map(File::getAbsolutePath)
+                .orElse(NONE);
+    }
+
+    private void write(String record, OpenOption mode) {
+        Path file = getFile();
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+                channel.write(ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8)));
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write to {}", file, e);
+        }
+    }
+
+    private Path getFile() {
+        return Paths.get(properties.getIntegrasjonspunkt().getHome(), FILE_NAME);
+    }
+}
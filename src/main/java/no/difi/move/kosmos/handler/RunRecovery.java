@@ -0,0 +1,52 @@
+package no.difi.move.kosmos.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.domain.HealthStatus;
+import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.LauncherService;
+import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
+import no.difi.move.kosmos.service.mail.MailService;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Finishes off a synchronization that Kosmos stopped in the middle of. If it stopped after the running
+ * version may have been shut down, and nothing is running now, the version that ran before is started again.
+ * A download that was cut short needs nothing, as it is not verified and will be fetched again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RunRecovery {
+
+    private static final Collection<String> STAGES_AFTER_SHUTDOWN = Arrays.asList(
+            SynchronizationHandler.SHUTDOWN_STAGE, SynchronizationHandler.START_STAGE, SynchronizationHandler.ROLLBACK_STAGE);
+
+    private final RunLog runLog;
+    private final ActuatorService actuatorService;
+    private final LauncherService launcherService;
+    private final MailService mailService;
+
+    public void recover() {
+        runLog.getInterruptedRun().ifPresent(run -> {
+            log.warn("The previous synchronization was interrupted in the {} stage", run.getStage());
+            if (STAGES_AFTER_SHUTDOWN.contains(run.getStage()) && run.getCurrentJar() != null
+                    && actuatorService.getStatus() != HealthStatus.UP) {
+                restart(run.getCurrentJar());
+            }
+            runLog.clear();
+        });
+    }
+
+    private void restart(String jarPath) {
+        log.info("Starting {}, which was running before the interrupted synchronization", jarPath);
+        LaunchResult launchResult = launcherService.launchIntegrasjonspunkt(jarPath);
+        String subject = String.format("Recovery %s %s", launchResult.getStatus().name(), new File(jarPath).getName());
+        log.info(subject);
+        mailService.sendMail(subject, launchResult.getStartupLog());
+    }
+}
@@ -7,23 +7,33 @@ import no.difi.move.kosmos.domain.application.Application;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class SynchronizationHandler {
 
+    static final String SHUTDOWN_STAGE = "shutdown";
+    static final String START_STAGE = "start";
+    static final String ROLLBACK_STAGE = "rollback";
+
     private final GetCurrentVersionAction currentVersionAction;
     private final LatestVersionAction latestVersionAction;
     private final VerifyVersionComplianceAction verifyVersionComplianceAction;
     private final PrepareApplicationAction prepareApplicationAction;
     private final ValidateAction validateAction;
+    private final ExtractApplicationAction extractApplicationAction;
+    private final ClassDataSharingAction classDataSharingAction;
     private final ShutdownAction shutdownAction;
     private final StartAction startAction;
     private final RollbackAction rollbackAction;
+    private final SynchronizationMetrics metrics;
+    private final RunLog runLog;
+    private final Lock lock = new ReentrantLock();
 
-    @PostConstruct
     @Scheduled(cron = "${kosmos.schedulerCronExpression}", zone = "Europe/Oslo")
     public void scheduledRun() {
         try {
@@ -33,18 +43,88 @@ public class SynchronizationHandler {
         }
     }
 
+    @Scheduled(cron = "${kosmos.prefetchCronExpression}", zone = "Europe/Oslo")
+    public void scheduledPrefetch() {
+        try {
+            prefetch();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs a full synchronization, unless a synchronization or prefetch is already in progress.
+     * Overlapping runs would race on the same JAR and marker files.
+     */
     public void run() {
+        if (!runExclusively(this::doRun)) {
+            log.info("Skipping synchronization, another run is in progress");
+        }
+    }
+
+    private void doRun() {
         log.info("Starting synchronization");
-        currentVersionAction
-                .andThen(latestVersionAction)
-                .andThen(verifyVersionComplianceAction)
-                .andThen(prepareApplicationAction)
-                .andThen(validateAction)
-                .andThen(shutdownAction)
-                .andThen(startAction)
-                .andThen(rollbackAction)
-                .apply(new Application());
+        runLog.begin();
+        try {
+            stage("current-version", currentVersionAction)
+                    .andThen(stage("latest-version", latestVersionAction))
+                    .andThen(stage("verify-version-compliance", verifyVersionComplianceAction))
+                    .andThen(stage("prepare", prepareApplicationAction))
+                    .andThen(stage("validate", validateAction))
+                    .andThen(stage("extract", extractApplicationAction))
+                    .andThen(stage("class-data-sharing", classDataSharingAction))
+                    .andThen(stage(SHUTDOWN_STAGE, shutdownAction))
+                    .andThen(stage(START_STAGE, startAction))
+                    .andThen(stage(ROLLBACK_STAGE, rollbackAction))
+                    .apply(new Application());
+        } finally {
+            runLog.end();
+        }
         log.info("Finished synchronization");
     }
 
+    /**
+     * Downloads, validates, extracts and trains the latest version ahead of the synchronization window,
+     * leaving only the shutdown and start to the scheduled run. Skipped while another run is in progress.
+     */
+    public void prefetch() {
+        if (!runExclusively(this::doPrefetch)) {
+            log.info("Skipping prefetch, another run is in progress");
+        }
+    }
+
+    /**
+     * Runs the task unless a synchronization or prefetch is in progress, keeping them out while it runs.
+     *
+     * @return false if the task was not run
+     */
+    public boolean runExclusively(Runnable task) {
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            task.run();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doPrefetch() {
+        log.info("Starting prefetch");
+        String run = "prefetch";
+        metrics.instrument(run, "latest-version", latestVersionAction)
+                .andThen(metrics.instrument(run, "verify-version-compliance", verifyVersionComplianceAction))
+                .andThen(metrics.instrument(run, "prepare", prepareApplicationAction))
+                .andThen(metrics.instrument(run, "validate", validateAction))
+                .andThen(metrics.instrument(run, "extract", extractApplicationAction))
+                .andThen(metrics.instrument(run, "class-data-sharing", classDataSharingAction))
+                .apply(new Application());
+        log.info("Finished prefetch");
+    }
+
+    private Function<Application, Application> stage(String stage, Function<Application, Application> action) {
+        return metrics.instrument("synchronization", stage, runLog.track(stage, action));
+    }
+
 }
@@ -0,0 +1,84 @@
+package no.difi.move.kosmos.handler;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Wraps the synchronization stages to time them and count their outcomes, and records
+ * download and startup figures the stages leave on the {@link Application}.
+ */
+@Component
+@RequiredArgsConstructor
+public class SynchronizationMetrics {
+
+    static final String STAGE_TIMER = "kosmos.synchronization.stage";
+    static final String STAGE_COUNTER = "kosmos.synchronization.stage.results";
+    static final String DOWNLOAD_SIZE = "kosmos.download.size";
+    static final String DOWNLOAD_DURATION = "kosmos.download.duration";
+    static final String DOWNLOAD_THROUGHPUT = "kosmos.download.throughput";
+    static final String LAUNCH_DURATION = "kosmos.launch.duration";
+
+    private final MeterRegistry meterRegistry;
+
+    public Function<Application, Application> instrument(String run, String stage, Function<Application, Application> action) {
+        return application -> {
+            Duration downloadBefore = getDownloadDuration(application);
+            LaunchResult launchBefore = application.getLaunchResult();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "failure";
+            try {
+                Application result = action.apply(application);
+                outcome = "success";
+                recordDownload(result, downloadBefore);
+                recordLaunch(result, launchBefore);
+                return result;
+            } finally {
+                sample.stop(meterRegistry.timer(STAGE_TIMER, "run", run, "stage", stage, "outcome", outcome));
+                meterRegistry.counter(STAGE_COUNTER, "run", run, "stage", stage, "outcome", outcome).increment();
+            }
+        };
+    }
+
+    private void recordDownload(Application application, Duration downloadBefore) {
+        Duration duration = getDownloadDuration(application);
+        if (duration == null || duration == downloadBefore) {
+            return;
+        }
+        ApplicationMetadata latest = application.getLatest();
+        long bytes = latest.getDownloadSize() == null ? 0 : latest.getDownloadSize();
+        meterRegistry.timer(DOWNLOAD_DURATION).record(duration);
+        DistributionSummary.builder(DOWNLOAD_SIZE)
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(bytes);
+        if (!duration.isZero()) {
+            DistributionSummary.builder(DOWNLOAD_THROUGHPUT)
+                    .baseUnit("bytes.per.second")
+                    .register(meterRegistry)
+                    .record(bytes * (double) TimeUnit.SECONDS.toNanos(1) / duration.toNanos());
+        }
+    }
+
+    private void recordLaunch(Application application, LaunchResult launchBefore) {
+        LaunchResult launchResult = application.getLaunchResult();
+        if (launchResult == null || launchResult == launchBefore || launchResult.getStartupDuration() == null) {
+            return;
+        }
+        meterRegistry.timer(LAUNCH_DURATION, "status", String.valueOf(launchResult.getStatus()))
+                .record(launchResult.getStartupDuration());
+    }
+
+    private static Duration getDownloadDuration(Application application) {
+        return application.getLatest() == null ? null : application.getLatest().getDownloadDuration();
+    }
+}
@@ -0,0 +1,16 @@
+package no.difi.move.kosmos.repo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the bytes of a download in the order they are written to disk.
+ */
+public interface DownloadListener {
+
+    /**
+     * Called when the download starts over from the first byte.
+     */
+    void reset();
+
+    void update(ByteBuffer data);
+}
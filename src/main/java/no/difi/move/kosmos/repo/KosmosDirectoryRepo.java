@@ -1,22 +1,14 @@
 package no.difi.move.kosmos.repo;
 
-import com.vdurmont.semver4j.Semver;
+import com.google.common.io.BaseEncoding;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import no.difi.move.kosmos.config.KosmosProperties;
-import org.apache.commons.io.FileUtils;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FilenameFilter;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,8 +18,9 @@ import java.util.regex.Pattern;
 public class KosmosDirectoryRepo {
 
     private final KosmosProperties properties;
+    private final VersionStateStore stateStore;
     private static String ALLOWLISTEDFILENAME = "integrasjonspunkt-%s.allowlisted";
-    private static Pattern PATTERN = Pattern.compile("-(\\d+.\\d+.\\d+[^.]*)");
+    private static final Pattern JAR_PATTERN = Pattern.compile("^integrasjonspunkt-(.+)\\.jar$");
 
     public File getFile(String version, String name) {
         File root = getOrCreateHomeFolder();
@@ -43,125 +36,96 @@ public class KosmosDirectoryRepo {
         return home;
     }
 
-    @SneakyThrows
     public void blockList(File file) {
-        try {
-            if (doBlocklist(file).createNewFile()) {
-                log.info("Blocklisted {}", file.getAbsolutePath());
-            }
-        } catch (IOException e) {
-            log.debug("Could not blocklist {}", file.getAbsolutePath(), e);
-        }
+        int durationInHours = properties.getBlocklist().getDurationInHours();
+        log.debug("Blocklist duration is {} hours", durationInHours);
+        LocalDateTime expires = LocalDateTime.now().plusHours(durationInHours);
+        log.debug("Blocklisting {} until {}", file.getName(), expires);
+        stateStore.blocklist(getVersion(file), expires);
+        log.info("Blocklisted {}", file.getAbsolutePath());
     }
 
     public boolean isBlockListed(File file) {
-        final File blocklistFile = getBlocklistPath(file);
-        if (blocklistFile.exists()) {
-            try {
-                LocalDateTime expires = LocalDateTime.parse(FileUtils.readFileToString(blocklistFile, StandardCharsets.UTF_8));
-                log.debug("Blocklist expires at {}", expires);
-                final boolean expired = expires.isBefore(LocalDateTime.now());
-                if (expired) {
-                    removeBlocklist(blocklistFile);
-                }
-                return !expired;
-            } catch (IOException e) {
-                log.warn("Could not get blocklist information", e);
-            }
+        String version = getVersion(file);
+        LocalDateTime expires = stateStore.get(version).getBlocklistedUntil();
+        if (expires == null) {
+            return false;
+        }
+        log.debug("Blocklist expires at {}", expires);
+        final boolean expired = expires.isBefore(LocalDateTime.now());
+        if (expired) {
+            stateStore.removeBlocklist(version);
+            log.debug("Removed expired blocklist of {}", file.getName());
         }
-        return false;
+        return !expired;
     }
 
-    public File getBlocklistPath(File file) {
-        return new File(file.getAbsolutePath().replaceFirst("jar$", "blocklisted"));
+    /**
+     * When the blocklist of the file expires, or null if it is not blocklisted.
+     */
+    public LocalDateTime getBlocklistedUntil(File file) {
+        return stateStore.get(getVersion(file)).getBlocklistedUntil();
     }
 
-    private void removeBlocklist(File blocklistFile) {
-        boolean deleted = FileUtils.deleteQuietly(blocklistFile);
-        if (deleted) {
-            log.debug("Removed expired blocklist file {}", blocklistFile);
-        } else {
-            log.debug("Could not remove expired blocklist file {}", blocklistFile);
-        }
+    /**
+     * Records that the JAR has passed validation, so a prefetched download can be started without fetching it again.
+     */
+    public void markVerified(File file, byte[] sha1) {
+        stateStore.markVerified(getVersion(file), BaseEncoding.base16().lowerCase().encode(sha1));
+        log.debug("Marked {} as verified", file.getName());
     }
 
-    private File doBlocklist(File file) {
-        final File blocklistFile = getBlocklistPath(file);
-        log.debug("Blocklist file pathname is {}", blocklistFile.getAbsolutePath());
-        try (BufferedWriter writer = Files.newBufferedWriter(blocklistFile.toPath(), StandardCharsets.UTF_8)) {
-            int durationInHours = properties.getBlocklist().getDurationInHours();
-            log.debug("Blocklist duration is {} hours", durationInHours);
-            LocalDateTime expires = LocalDateTime.now().plusHours(durationInHours);
-            log.debug("Blocklisting {} until {}", file.getName(), expires);
-            writer.write(expires.toString());
-        } catch (IOException e) {
-            log.warn("Could not blocklist {}", file.getName());
-        }
-        return blocklistFile;
+    public boolean isVerified(File file) {
+        return stateStore.get(getVersion(file)).isVerified();
     }
 
-    @SneakyThrows
-    public void allowlist(File file, String version) {
-        try {
-            if (doAllowlist(file, version).createNewFile()) {
-                log.info("Allowlisted {}", file.getAbsolutePath());
-            }
-        } catch (IOException e) {
-            log.error("Could not Allowlist {}", file.getAbsolutePath(), e);
-        }
+    /**
+     * Hex encoded SHA-1 of the JAR when it passed validation, or null if it has not.
+     */
+    public String getVerifiedHash(File file) {
+        return stateStore.get(getVersion(file)).getVerifiedHash();
     }
 
-    private File doAllowlist(File file, String version) {
-        String fileName = String.format(ALLOWLISTEDFILENAME, version);
-        File allowlistFile = new File(properties.getIntegrasjonspunkt().getHome() + "/" + fileName);
-        log.debug("Allowlist file pathname is {}", allowlistFile.getAbsolutePath());
-        try (BufferedWriter writer = Files.newBufferedWriter(allowlistFile.toPath(), StandardCharsets.UTF_8)) {
-            LocalDateTime created = LocalDateTime.now();
-            log.debug("Allowlist file: {} created: {}", file.getName(), created);
-            writer.write(created.toString());
-        } catch (IOException e) {
-            log.warn("Could not Allowlist file: {}", file.getName());
-        }
-        return allowlistFile;
+    /**
+     * How long the last successful launch of the JAR took, or null if it has not been launched successfully.
+     */
+    public Duration getStartupDuration(File file) {
+        return stateStore.get(getVersion(file)).getStartupDuration();
+    }
+
+    public void recordStartupDuration(File file, Duration duration) {
+        stateStore.recordStartup(getVersion(file), duration);
+    }
+
+    public void allowlist(File file, String version) {
+        stateStore.allowlist(version);
+        log.info("Allowlisted {}", file.getAbsolutePath());
     }
 
     public File getAllowlistFile() {
-        String[] filesNames;
-        File f = new File(properties.getIntegrasjonspunkt().getHome());
-        FilenameFilter filter = (f1, name) -> name.endsWith(".allowlisted");
-        filesNames = f.list(filter);
-        return Arrays.stream(filesNames)
-                .map(s -> new Semver(getSemanticVersion(s)))
-                .sorted(Comparator.reverseOrder())
-                .findFirst()
-                .map(p -> new File(String.format(ALLOWLISTEDFILENAME, p.getValue())))
+        return stateStore.getAllowlistVersion()
+                .map(version -> new File(String.format(ALLOWLISTEDFILENAME, version)))
                 .orElse(null);
     }
 
     public String getAllowlistVersion() {
-        File file = getAllowlistFile();
-        if (file != null) {
-            return file
-                    .getName()
-                    .replaceFirst(".allowlisted", "")
-                    .replace("integrasjonspunkt-", "");
-        } else {
-            return null;
-        }
+        return stateStore.getAllowlistVersion().orElse(null);
     }
 
     public void removeAllowlist(String version) {
-        File allowlistPath = getFile(version, ALLOWLISTEDFILENAME);
-        boolean deleted = FileUtils.deleteQuietly(allowlistPath);
-        if (deleted) {
-            log.debug("Removed Allowlist file {}", allowlistPath);
-        } else {
-            log.debug("Could not remove Allowlist file {}", allowlistPath);
-        }
+        stateStore.removeAllowlist(version);
+        log.debug("Removed Allowlist of {}", version);
+    }
+
+    public static String getVersion(File file) {
+        return getVersion(file.getName());
     }
 
-    private String getSemanticVersion(String filename) {
-        Matcher matcher = PATTERN.matcher(filename);
-        return matcher.find() ? matcher.group(1) : null;
+    /**
+     * The version in a JAR file name, or the name itself if it is not named like an integrasjonspunkt JAR.
+     */
+    public static String getVersion(String fileName) {
+        Matcher matcher = JAR_PATTERN.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : fileName;
     }
 }
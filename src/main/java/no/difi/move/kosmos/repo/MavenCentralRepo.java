@@ -1,12 +1,17 @@
 package no.difi.move.kosmos.repo;
 
+import no.difi.move.kosmos.domain.ArtifactBundle;
+import reactor.core.publisher.Mono;
+
 import java.nio.file.Path;
+import java.util.function.Function;
 
 public interface MavenCentralRepo {
 
-    void downloadJAR(String version, Path destination);
-
-    byte[] getChecksum(String version, String classifier);
-
-    String downloadSignature(String version);
+    /**
+     * Requests the distribution, its checksums and its signature concurrently. The distribution is streamed to
+     * the destination through the listener created from the bundle, and the bundle is emitted once the
+     * distribution is in place.
+     */
+    Mono<ArtifactBundle> fetchArtifactBundle(String version, Path destination, Function<ArtifactBundle, DownloadListener> listenerFactory);
 }
@@ -0,0 +1,71 @@
+package no.difi.move.kosmos.repo;
+
+import com.vdurmont.semver4j.Semver;
+import com.vdurmont.semver4j.SemverException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * The versions in the {@link VersionStateStore}, newest first. Each version is parsed once, when the store records it,
+ * so lookups neither list the home directory nor parse version names. Versions that are not semantic versions
+ * are left out. Not thread safe, the store guards it.
+ */
+@Slf4j
+class VersionCatalog {
+
+    private static final Comparator<Semver> NEWEST_FIRST = Comparator.<Semver>reverseOrder()
+            .thenComparing(Semver::getOriginalValue);
+
+    private final NavigableMap<Semver, VersionState> entries = new TreeMap<>(NEWEST_FIRST);
+    private final Map<String, Semver> parsed = new HashMap<>();
+
+    void put(VersionState state) {
+        Semver semver = parsed.computeIfAbsent(state.getVersion(), VersionCatalog::toSemver);
+        if (semver != null) {
+            entries.put(semver, state);
+        }
+    }
+
+    void remove(String version) {
+        Semver semver = parsed.remove(version);
+        if (semver != null) {
+            entries.remove(semver);
+        }
+    }
+
+    void clear() {
+        entries.clear();
+        parsed.clear();
+    }
+
+    List<VersionState> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * The newest allowlisted version, if any.
+     */
+    Optional<String> getAllowlistVersion() {
+        return entries.values().stream()
+                .filter(VersionState::isAllowlisted)
+                .map(VersionState::getVersion)
+                .findFirst();
+    }
+
+    private static Semver toSemver(String version) {
+        try {
+            return new Semver(version);
+        } catch (SemverException e) {
+            log.debug("Leaving {} out of the catalog, it is not a semantic version", version);
+            return null;
+        }
+    }
+}
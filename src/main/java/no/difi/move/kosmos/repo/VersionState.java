@@ -0,0 +1,45 @@
+package no.difi.move.kosmos.repo;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * What Kosmos has recorded about one version of integrasjonspunkt.
+ */
+@Value
+@Builder(toBuilder = true)
+public class VersionState {
+
+    String version;
+    LocalDateTime allowlistedAt;
+    LocalDateTime blocklistedUntil;
+    int failureCount;
+    /**
+     * Hex encoded SHA-1 of the JAR that passed validation, or null if it has not been validated.
+     */
+    String verifiedHash;
+    /**
+     * How long the last successful launch took to come UP, or null if it has not been launched successfully.
+     */
+    Duration startupDuration;
+
+    public static VersionState empty(String version) {
+        return VersionState.builder().version(version).build();
+    }
+
+    public boolean isAllowlisted() {
+        return allowlistedAt != null;
+    }
+
+    public boolean isVerified() {
+        return verifiedHash != null;
+    }
+
+    boolean isEmpty() {
+        return allowlistedAt == null && blocklistedUntil == null && failureCount == 0 && verifiedHash == null
+                && startupDuration == null;
+    }
+}
@@ -0,0 +1,297 @@
+package no.difi.move.kosmos.repo;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import org.apache.commons.io.FileUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Allowlist, blocklist, validation state and last startup duration of all versions, held in memory and persisted to an append-only
+ * journal in the integrasjonspunkt home directory.
+ * <p>
+ * Every change appends the complete new state of the version as one checksummed line and is forced to disk
+ * before it is visible. On load the last line for each version wins, and lines that are torn or fail their
+ * checksum are skipped. The journal is rewritten to one line per version when it has grown well beyond that.
+ * Marker files written by earlier versions of Kosmos are imported the first time a home directory is used.
+ * A {@link VersionCatalog} of the versions, newest first, is kept current with every change.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VersionStateStore {
+
+    static final String JOURNAL_FILE_NAME = "kosmos-state.journal";
+    private static final String NONE = "-";
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 100;
+    private static final Pattern MARKER_PATTERN =
+            Pattern.compile("^integrasjonspunkt-(.+)\\.(allowlisted|blocklisted)$");
+
+    private final KosmosProperties properties;
+    private final Map<String, VersionState> states = new HashMap<>();
+    private final VersionCatalog catalog = new VersionCatalog();
+
+    private Path home;
+    private int records;
+
+    public synchronized VersionState get(String version) {
+        ensureLoaded();
+        return states.getOrDefault(version, VersionState.empty(version));
+    }
+
+    /**
+     * The state of all versions with recorded state, newest first.
+     */
+    public synchronized List<VersionState> getCatalog() {
+        ensureLoaded();
+        return catalog.getEntries();
+    }
+
+    /**
+     * The newest allowlisted version, if any.
+     */
+    public synchronized Optional<String> getAllowlistVersion() {
+        ensureLoaded();
+        return catalog.getAllowlistVersion();
+    }
+
+    public void allowlist(String version) {
+        update(version, state -> state.toBuilder().allowlistedAt(LocalDateTime.now()).build());
+    }
+
+    public void removeAllowlist(String version) {
+        update(version, state -> state.toBuilder().allowlistedAt(null).build());
+    }
+
+    public void blocklist(String version, LocalDateTime until) {
+        update(version, state -> state.toBuilder()
+                .blocklistedUntil(until)
+                .failureCount(state.getFailureCount() + 1)
+                .build());
+    }
+
+    public void removeBlocklist(String version) {
+        update(version, state -> state.toBuilder().blocklistedUntil(null).build());
+    }
+
+    public void markVerified(String version, String hash) {
+        update(version, state -> state.toBuilder().verifiedHash(hash).build());
+    }
+
+    public void recordStartup(String version, Duration duration) {
+        update(version, state -> state.toBuilder().startupDuration(duration).build());
+    }
+
+    /**
+     * Rewrites the journal to hold one line per version.
+     */
+    public synchronized void compact() {
+        ensureLoaded();
+        doCompact();
+    }
+
+    private synchronized void update(String version, UnaryOperator<VersionState> change) {
+        ensureLoaded();
+        VersionState state = change.apply(states.getOrDefault(version, VersionState.empty(version)));
+        try {
+            append(state);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not record the state of %s", version), e);
+        }
+        put(state);
+        if (records > Math.max(MIN_RECORDS_BEFORE_COMPACTION, 2 * states.size())) {
+            doCompact();
+        }
+    }
+
+    private void ensureLoaded() {
+        Path configuredHome = Paths.get(properties.getIntegrasjonspunkt().getHome()).toAbsolutePath();
+        if (configuredHome.equals(home)) {
+            return;
+        }
+        states.clear();
+        catalog.clear();
+        records = 0;
+        home = configuredHome;
+        Path journal = getJournal();
+        if (Files.exists(journal)) {
+            load(journal);
+        } else {
+            importMarkers();
+        }
+    }
+
+    private void load(Path journal) {
+        boolean damaged = false;
+        try {
+            byte[] content = Files.readAllBytes(journal);
+            damaged = content.length > 0 && content[content.length - 1] != '\n';
+            for (String line : new String(content, StandardCharsets.UTF_8).split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                VersionState state = parse(line);
+                if (state == null) {
+                    log.warn("Skipping damaged line in {}: {}", journal, line);
+                    damaged = true;
+                    continue;
+                }
+                ++records;
+                put(state);
+            }
+            log.debug("Loaded the state of {} versions from {}", states.size(), journal);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not read %s", journal), e);
+        }
+        if (damaged || records > Math.max(MIN_RECORDS_BEFORE_COMPACTION, 2 * states.size())) {
+            doCompact();
+        }
+    }
+
+    private void importMarkers() {
+        File[] markers = home.toFile().listFiles((dir, name) -> MARKER_PATTERN.matcher(name).matches());
+        if (markers == null || markers.length == 0) {
+            return;
+        }
+        for (File marker : markers) {
+            Matcher matcher = MARKER_PATTERN.matcher(marker.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            String version = matcher.group(1);
+            VersionState state = states.getOrDefault(version, VersionState.empty(version));
+            switch (matcher.group(2)) {
+                case "allowlisted":
+                    state = state.toBuilder().allowlistedAt(readTimestamp(marker, LocalDateTime.now())).build();
+                    break;
+                default:
+                    state = state.toBuilder()
+                            .blocklistedUntil(readTimestamp(marker, LocalDateTime.now()))
+                            .failureCount(state.getFailureCount() + 1)
+                            .build();
+            }
+            put(state);
+        }
+        log.info("Imported {} marker files from {} into {}", markers.length, home, JOURNAL_FILE_NAME);
+        doCompact();
+        Arrays.stream(markers).forEach(FileUtils::deleteQuietly);
+    }
+
+    private void put(VersionState state) {
+        if (state.isEmpty()) {
+            states.remove(state.getVersion());
+            catalog.remove(state.getVersion());
+        } else {
+            states.put(state.getVersion(), state);
+            catalog.put(state);
+        }
+    }
+
+    private static LocalDateTime readTimestamp(File marker, LocalDateTime fallback) {
+        try {
+            return LocalDateTime.parse(FileUtils.readFileToString(marker, StandardCharsets.UTF_8).trim());
+        } catch (IOException | DateTimeParseException e) {
+            log.warn("Could not read the timestamp in {}", marker, e);
+            return fallback;
+        }
+    }
+
+    private void append(VersionState state) throws IOException {
+        Files.createDirectories(home);
+        try (FileChannel channel = FileChannel.open(getJournal(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(format(state).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        ++records;
+    }
+
+    private void doCompact() {
+        Path journal = getJournal();
+        Path temporary = journal.resolveSibling(JOURNAL_FILE_NAME + ".tmp");
+        StringBuilder content = new StringBuilder();
+        states.values().forEach(state -> content.append(format(state)));
+        try {
+            Files.createDirectories(home);
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+                channel.force(true);
+            }
+            Files.move(temporary, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            records = states.size();
+            log.debug("Compacted {} to {} versions", journal, records);
+        } catch (IOException e) {
+            log.warn("Could not compact {}", journal, e);
+        }
+    }
+
+    private Path getJournal() {
+        return home.resolve(JOURNAL_FILE_NAME);
+    }
+
+    private static String format(VersionState state) {
+        String payload = String.join(" ",
+                state.getVersion(),
+                toString(state.getAllowlistedAt()),
+                toString(state.getBlocklistedUntil()),
+                Integer.toString(state.getFailureCount()),
+                state.getVerifiedHash() == null ? NONE : state.getVerifiedHash(),
+                state.getStartupDuration() == null ? NONE : Long.toString(state.getStartupDuration().toMillis()));
+        return String.format("%08x %s\n", checksum(payload), payload);
+    }
+
+    private static VersionState parse(String line) {
+        String[] parts = line.split(" ", 2);
+        if (parts.length != 2 || !parts[0].equals(String.format("%08x", checksum(parts[1])))) {
+            return null;
+        }
+        String[] fields = parts[1].split(" ");
+        // Records written before the startup duration was kept have five fields
+        if (fields.length != 5 && fields.length != 6) {
+            return null;
+        }
+        try {
+            return VersionState.builder()
+                    .version(fields[0])
+                    .allowlistedAt(toDateTime(fields[1]))
+                    .blocklistedUntil(toDateTime(fields[2]))
+                    .failureCount(Integer.parseInt(fields[3]))
+                    .verifiedHash(NONE.equals(fields[4]) ? null : fields[4])
+                    .startupDuration(fields.length == 5 || NONE.equals(fields[5]) ? null : Duration.ofMillis(Long.parseLong(fields[5])))
+                    .build();
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long checksum(String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private static String toString(LocalDateTime dateTime) {
+        return dateTime == null ? NONE : dateTime.toString();
+    }
+
+    private static LocalDateTime toDateTime(String value) {
+        return NONE.equals(value) ? null : LocalDateTime.parse(value);
+    }
+}
@@ -7,29 +7,46 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import no.difi.move.kosmos.action.KosmosActionException;
 import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.ArtifactBundle;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
+import reactor.util.function.Tuple2;
+import reactor.util.retry.Retry;
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @Slf4j
 @Component
 public class WebClientMavenCentralRepo implements MavenCentralRepo {
 
+    private static final String PARTIAL_DOWNLOAD_SUFFIX = ".part";
+
     private final KosmosProperties properties;
     private final WebClient webClient;
 
@@ -43,8 +60,27 @@ public class WebClientMavenCentralRepo implements MavenCentralRepo {
     }
 
     @Override
-    public void downloadJAR(String version, Path destination) {
-        log.trace("Entering WebClientMavenCentralRepo.downloadJAR() with arguments: version: {}, path: {}", version, destination);
+    public Mono<ArtifactBundle> fetchArtifactBundle(String version, Path destination, Function<ArtifactBundle, DownloadListener> listenerFactory) {
+        log.trace("Entering WebClientMavenCentralRepo.fetchArtifactBundle() with arguments: version: {}, path: {}", version, destination);
+        Objects.requireNonNull(listenerFactory, "Download listener factory missing");
+        Mono<ArtifactBundle> bundle = Mono.zip(
+                fetchChecksum(version, ".sha1"),
+                fetchChecksum(version, ".md5"),
+                fetchSignature(version))
+                .map(checksumsAndSignature -> ArtifactBundle.builder()
+                        .version(version)
+                        .sha1(checksumsAndSignature.getT1())
+                        .md5(checksumsAndSignature.getT2())
+                        .signature(checksumsAndSignature.getT3())
+                        .build())
+                .cache();
+        Mono<Void> jar = download(version, destination, bundle.map(listenerFactory).cache())
+                .onErrorMap(WebClientResponseException.class, e -> new KosmosActionException("File download failed", e));
+        return Mono.zip(bundle, jar.thenReturn(Boolean.TRUE))
+                .map(Tuple2::getT1);
+    }
+
+    private Mono<Void> download(String version, Path destination, Mono<DownloadListener> listener) {
         if (Strings.isNullOrEmpty(version)) {
             throw new KosmosActionException("Empty version selected for download");
         }
@@ -52,32 +88,140 @@ public class WebClientMavenCentralRepo implements MavenCentralRepo {
         log.info("Downloading file");
         URI downloadUri = getDownloadURI(version, null);
         log.debug("Downloading file from {}", downloadUri);
+        Path partialDownload = destination.resolveSibling(destination.getFileName() + PARTIAL_DOWNLOAD_SUFFIX);
+        AtomicLong bytesSeenByListener = new AtomicLong();
+        return Mono.defer(() -> resumeDownload(downloadUri, partialDownload, listener, bytesSeenByListener))
+                .retryWhen(Retry.max(properties.getMavenCentralDownloadRetries())
+                        .filter(e -> !(e instanceof WebClientResponseException) && !(e instanceof KosmosActionException))
+                        .doBeforeRetry(signal -> log.warn("Download interrupted, resuming: {}", signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .then(Mono.fromRunnable(() -> moveIntoPlace(partialDownload, destination)));
+    }
+
+    private static void moveIntoPlace(Path partialDownload, Path destination) {
         try {
-            Flux<DataBuffer> dataBufferFlux = webClient.get().uri(downloadUri)
-                    .retrieve().bodyToFlux(DataBuffer.class);
-            DataBufferUtils.write(dataBufferFlux, destination, StandardOpenOption.CREATE).block();
+            Files.move(partialDownload, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
             log.debug("File downloaded to {}", destination);
-        } catch (WebClientResponseException e) {
-            throw new KosmosActionException("File download failed", e);
+        } catch (IOException e) {
+            throw new KosmosActionException(String.format("Could not move %s to %s", partialDownload, destination), e);
         }
     }
 
-    @Override
-    public byte[] getChecksum(String version, String classifier) {
-        log.trace("Entering WebClientMavenCentralRepo.getChecksum() with args: version: {}, classifier: {}", version, classifier);
-        URI uri = getDownloadURI(version, classifier);
-        log.trace("Fetching checksum from URL {}", uri);
+    private Mono<Void> resumeDownload(URI downloadUri, Path partialDownload, Mono<DownloadListener> listener, AtomicLong bytesSeenByListener) {
+        long offset = partialDownload.toFile().length();
+        if (offset > 0) {
+            log.debug("Found {} bytes of a previous download in {}", offset, partialDownload);
+        }
+        return webClient.get().uri(downloadUri)
+                .headers(headers -> {
+                    if (offset > 0) {
+                        headers.setRange(Collections.singletonList(HttpRange.createByteRange(offset)));
+                    }
+                })
+                .exchange()
+                .flatMap(response -> listener
+                        .doOnError(e -> response.releaseBody().subscribe())
+                        .flatMap(l -> writeResponse(response, partialDownload, offset, l, bytesSeenByListener)));
+    }
+
+    private Mono<Void> writeResponse(ClientResponse response, Path partialDownload, long offset,
+                                     DownloadListener listener, AtomicLong bytesSeenByListener) {
+        HttpStatus status = response.statusCode();
+        if (status == HttpStatus.PARTIAL_CONTENT && isContinuationOf(response, offset)) {
+            log.info("Resuming download at byte {}", offset);
+            return Mono.fromRunnable(() -> catchUp(partialDownload, offset, listener, bytesSeenByListener))
+                    .then(write(response.bodyToFlux(DataBuffer.class), partialDownload, offset, listener, bytesSeenByListener));
+        }
+        if (status == HttpStatus.PARTIAL_CONTENT || status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE) {
+            return response.releaseBody()
+                    .then(Mono.fromCallable(() -> Files.deleteIfExists(partialDownload)))
+                    .then(Mono.error(new IOException(String.format("Could not resume download at byte %d, starting over", offset))));
+        }
+        if (status.is2xxSuccessful()) {
+            if (offset > 0) {
+                log.info("Resuming is not supported by the server, starting over");
+            }
+            listener.reset();
+            bytesSeenByListener.set(0);
+            return write(response.bodyToFlux(DataBuffer.class), partialDownload, 0, listener, bytesSeenByListener);
+        }
+        return response.createException().flatMap(Mono::error);
+    }
+
+    private static boolean isContinuationOf(ClientResponse response, long offset) {
+        String contentRange = response.headers().asHttpHeaders().getFirst(HttpHeaders.CONTENT_RANGE);
+        return contentRange != null && contentRange.startsWith("bytes " + offset + "-");
+    }
+
+    /**
+     * Makes sure the listener has seen exactly the bytes already on disk before the download continues.
+     */
+    @SneakyThrows(IOException.class)
+    private static void catchUp(Path partialDownload, long offset, DownloadListener listener, AtomicLong bytesSeenByListener) {
+        if (bytesSeenByListener.get() == offset) {
+            return;
+        }
+        log.debug("Reading the first {} bytes of {} before resuming", offset, partialDownload);
+        listener.reset();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        try (FileChannel channel = FileChannel.open(partialDownload, StandardOpenOption.READ)) {
+            long remaining = offset;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException(String.format("%s is shorter than %d bytes", partialDownload, offset));
+                }
+                buffer.flip();
+                listener.update(buffer);
+                remaining -= read;
+            }
+        }
+        bytesSeenByListener.set(offset);
+    }
+
+    private Mono<Void> write(Flux<DataBuffer> body, Path partialDownload, long position,
+                             DownloadListener listener, AtomicLong bytesSeenByListener) {
+        return Mono.using(
+                () -> openAt(partialDownload, position),
+                channel -> DataBufferUtils.write(body, channel)
+                        .doOnNext(buffer -> {
+                            listener.update(buffer.asByteBuffer());
+                            bytesSeenByListener.addAndGet(buffer.readableByteCount());
+                        })
+                        .map(DataBufferUtils::release)
+                        .then(),
+                WebClientMavenCentralRepo::close);
+    }
+
+    private static FileChannel openAt(Path path, long position) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(position);
+        channel.position(position);
+        return channel;
+    }
+
+    private static void close(FileChannel channel) {
         try {
-            Mono<String> mono = webClient.get().uri(uri)
-                    .retrieve().bodyToMono(String.class);
-            String hexString = Optional.ofNullable(mono.block())
-                    .orElseThrow(() -> new KosmosActionException(String.format("Couldn't download %s", uri)));
-            return ByteArrayUtil.hexStringToByteArray(hexString);
-        } catch (WebClientResponseException e) {
-            throw new KosmosActionException("Checksum fetch failed", e);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close download file", e);
         }
     }
 
+    private Mono<byte[]> fetchChecksum(String version, String classifier) {
+        URI uri = getDownloadURI(version, classifier);
+        log.trace("Fetching checksum from URL {}", uri);
+        return webClient.get().uri(uri)
+                .retrieve().bodyToMono(String.class)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new KosmosActionException(String.format("Couldn't download %s", uri)))))
+                .map(ByteArrayUtil::hexStringToByteArray)
+                .onErrorMap(WebClientResponseException.class, e -> new KosmosActionException("Checksum fetch failed", e));
+    }
+
     @SneakyThrows(URISyntaxException.class)
     private URI getDownloadURI(String version, String classifier) {
         UriComponentsBuilder builder = UriComponentsBuilder.fromUri(properties.getMavenCentral().toURI())
@@ -91,19 +235,12 @@ public class WebClientMavenCentralRepo implements MavenCentralRepo {
         return builder.build().toUri();
     }
 
-    @Override
-    public String downloadSignature(String version) {
-        String classifier = ".asc";
-        log.trace("Calling MavenCentralRepo.getChecksum() with args: version: {}, classifier: {}", version, classifier);
-        URI uri = getDownloadURI(version, classifier);
+    private Mono<String> fetchSignature(String version) {
+        URI uri = getDownloadURI(version, ".asc");
         log.trace("Downloading signature from {} ", uri);
-        try {
-            Mono<String> mono = webClient.get().uri(uri)
-                    .retrieve().bodyToMono(String.class);
-            return Optional.ofNullable(mono.block())
-                    .orElseThrow(() -> new KosmosActionException(String.format("Couldn't download %s", uri)));
-        } catch (WebClientResponseException e) {
-            throw new KosmosActionException("Signature fetch failed", e);
-        }
+        return webClient.get().uri(uri)
+                .retrieve().bodyToMono(String.class)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new KosmosActionException(String.format("Couldn't download %s", uri)))))
+                .onErrorMap(WebClientResponseException.class, e -> new KosmosActionException("Signature fetch failed", e));
     }
 }
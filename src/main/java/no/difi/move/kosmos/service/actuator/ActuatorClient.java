@@ -10,9 +10,18 @@ public interface ActuatorClient {
     @SneakyThrows(URISyntaxException.class)
     HealthStatus getStatus();
 
+    /**
+     * Same as {@link #getStatus()}, against an instance listening on the given port.
+     */
+    HealthStatus getStatus(int port);
+
     @SneakyThrows(URISyntaxException.class)
     boolean requestShutdown();
 
+    boolean requestShutdown(int port);
+
     @SneakyThrows(URISyntaxException.class)
     VersionInfo getVersionInfo();
+
+    VersionInfo getVersionInfo(int port);
 }
@@ -5,9 +5,42 @@ import no.difi.move.kosmos.domain.VersionInfo;
 
 public interface ActuatorService {
 
+    /**
+     * Health of the active instance. Served from a short-lived snapshot, see {@link #invalidate()}.
+     */
     HealthStatus getStatus();
 
+    /**
+     * Health of an instance on the given port, regardless of which instance is active.
+     */
+    HealthStatus getStatus(int port);
+
     boolean shutdown();
 
+    /**
+     * Asks the active instance to shut down, without waiting for it to stop.
+     *
+     * @return false if the request was not accepted
+     */
+    boolean requestShutdown();
+
     VersionInfo getVersionInfo();
+
+    /**
+     * Port of the instance the other methods talk to.
+     */
+    int getActivePort();
+
+    /**
+     * Port a blue/green launch should start the next version on.
+     */
+    int getIdlePort();
+
+    void switchTo(int port);
+
+    /**
+     * Discards the cached health and version, so the next call asks the instance again.
+     * Called whenever an instance is started or stopped.
+     */
+    void invalidate();
 }
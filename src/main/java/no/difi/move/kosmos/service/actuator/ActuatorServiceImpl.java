@@ -6,6 +6,12 @@ import no.difi.move.kosmos.config.KosmosProperties;
 import no.difi.move.kosmos.domain.HealthStatus;
 import no.difi.move.kosmos.domain.VersionInfo;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @Slf4j
@@ -14,6 +20,16 @@ public class ActuatorServiceImpl implements ActuatorService {
     private final KosmosProperties properties;
     private final ActuatorClient actuatorClient;
 
+    /**
+     * Port of the running instance when it differs from kosmos.integrasjonspunkt.baseURL, after a blue/green switch.
+     */
+    private volatile Integer activePort;
+
+    /**
+     * Health and version of the active instance, shared by concurrent callers and kept for actuatorSnapshotTtlInMs.
+     */
+    private final AtomicReference<Mono<ActuatorSnapshot>> snapshot = new AtomicReference<>();
+
     public ActuatorServiceImpl(KosmosProperties properties, ActuatorClient actuatorClient) {
         this.properties = properties;
         this.actuatorClient = actuatorClient;
@@ -21,31 +37,61 @@ public class ActuatorServiceImpl implements ActuatorService {
 
     @Override
     public HealthStatus getStatus() {
-        log.debug("Performing health check");
-        return actuatorClient.getStatus();
+        return getSnapshot().getStatus();
+    }
+
+    @Override
+    public HealthStatus getStatus(int port) {
+        log.debug("Performing health check on port {}", port);
+        return actuatorClient.getStatus(port);
     }
 
     @Override
     @SneakyThrows(InterruptedException.class)
     public boolean shutdown() {
         log.trace("Calling ActuatorServiceImpl.shutdown()");
-        if (!actuatorClient.requestShutdown()) {
-            return getStatus() != HealthStatus.UP;
+        invalidate();
+        try {
+            return doShutdown();
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public boolean requestShutdown() {
+        log.trace("Calling ActuatorServiceImpl.requestShutdown()");
+        Integer port = activePort;
+        try {
+            return port == null ? actuatorClient.requestShutdown() : actuatorClient.requestShutdown(port);
+        } finally {
+            invalidate();
+        }
+    }
+
+    private boolean doShutdown() throws InterruptedException {
+        Integer port = activePort;
+        if (!(port == null ? actuatorClient.requestShutdown() : actuatorClient.requestShutdown(port))) {
+            return probeStatus(port) != HealthStatus.UP;
         }
 
         int shutdownRetries = properties.getShutdownRetries();
         int pollIntervalInMs = properties.getShutdownPollIntervalInMs();
-        log.debug("Retries shutdown {} times with interval {}", shutdownRetries, pollIntervalInMs);
-        for (int retries = shutdownRetries; retries > 0; --retries) {
-            Thread.sleep(pollIntervalInMs);
+        long timeoutInMs = (long) shutdownRetries * pollIntervalInMs;
+        log.debug("Waiting up to {} ms for shutdown, polling with backoff up to every {} ms", timeoutInMs, pollIntervalInMs);
+        long start = System.currentTimeMillis();
+        long delayInMs = Math.min(properties.getShutdownInitialPollIntervalInMs(), pollIntervalInMs);
+        do {
+            Thread.sleep(delayInMs);
 
-            HealthStatus status = getStatus();
+            HealthStatus status = probeStatus(port);
             log.info("Health status is {}", status);
 
             if (status != HealthStatus.UP) {
                 return true;
             }
-        }
+            delayInMs = Math.min(delayInMs * 2, pollIntervalInMs);
+        } while (System.currentTimeMillis() - start < timeoutInMs);
 
         log.warn("Could not shutdown application");
 
@@ -54,6 +100,70 @@ public class ActuatorServiceImpl implements ActuatorService {
 
     @Override
     public VersionInfo getVersionInfo() {
-        return actuatorClient.getVersionInfo();
+        VersionInfo versionInfo = getSnapshot().getVersionInfo();
+        if (versionInfo.isResolved() || !properties.getIntegrasjonspunkt().getBlueGreen().isEnabled()) {
+            return versionInfo;
+        }
+        int idlePort = getIdlePort();
+        VersionInfo idleVersionInfo = actuatorClient.getVersionInfo(idlePort);
+        if (idleVersionInfo.isResolved()) {
+            log.info("Found the running integrasjonspunkt on port {}", idlePort);
+            switchTo(idlePort);
+            return idleVersionInfo;
+        }
+        return versionInfo;
+    }
+
+    @Override
+    public int getActivePort() {
+        Integer port = activePort;
+        return port == null ? getConfiguredPort() : port;
+    }
+
+    @Override
+    public int getIdlePort() {
+        int alternatePort = properties.getIntegrasjonspunkt().getBlueGreen().getAlternatePort();
+        return getActivePort() == alternatePort ? getConfiguredPort() : alternatePort;
+    }
+
+    @Override
+    public void switchTo(int port) {
+        log.info("Switching to the integrasjonspunkt on port {}", port);
+        activePort = port == getConfiguredPort() ? null : port;
+        invalidate();
+    }
+
+    @Override
+    public void invalidate() {
+        snapshot.set(null);
+    }
+
+    private ActuatorSnapshot getSnapshot() {
+        return snapshot.updateAndGet(current -> current != null ? current : fetchSnapshot()).block();
+    }
+
+    /**
+     * Fetches health and version concurrently, so an unreachable instance costs one timeout rather than two.
+     */
+    private Mono<ActuatorSnapshot> fetchSnapshot() {
+        Integer port = activePort;
+        Mono<HealthStatus> status = Mono.fromCallable(() -> probeStatus(port))
+                .subscribeOn(Schedulers.boundedElastic())
+                .defaultIfEmpty(HealthStatus.UNKNOWN);
+        Mono<VersionInfo> versionInfo = Mono.fromCallable(() -> port == null ? actuatorClient.getVersionInfo() : actuatorClient.getVersionInfo(port))
+                .subscribeOn(Schedulers.boundedElastic())
+                .defaultIfEmpty(VersionInfo.builder().resolved(false).build());
+        return Mono.zip(status, versionInfo, ActuatorSnapshot::new)
+                .cache(Duration.ofMillis(properties.getActuatorSnapshotTtlInMs()));
+    }
+
+    private HealthStatus probeStatus(Integer port) {
+        log.debug("Performing health check");
+        return port == null ? actuatorClient.getStatus() : actuatorClient.getStatus(port);
+    }
+
+    private int getConfiguredPort() {
+        URL baseURL = properties.getIntegrasjonspunkt().getBaseURL();
+        return baseURL.getPort() != -1 ? baseURL.getPort() : baseURL.getDefaultPort();
     }
 }
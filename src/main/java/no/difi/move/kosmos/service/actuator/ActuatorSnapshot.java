@@ -0,0 +1,14 @@
+package no.difi.move.kosmos.service.actuator;
+
+import lombok.Value;
+import no.difi.move.kosmos.domain.HealthStatus;
+import no.difi.move.kosmos.domain.VersionInfo;
+
+/**
+ * Health and version of the active instance, as fetched together.
+ */
+@Value
+class ActuatorSnapshot {
+    HealthStatus status;
+    VersionInfo versionInfo;
+}
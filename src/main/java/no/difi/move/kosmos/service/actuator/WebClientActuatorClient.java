@@ -14,6 +14,7 @@ import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 
@@ -21,6 +22,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Duration;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 @Slf4j
 @Component
@@ -40,8 +42,17 @@ public class WebClientActuatorClient implements ActuatorClient {
 
     @Override
     public HealthStatus getStatus() {
+        return getStatus(OptionalInt.empty());
+    }
+
+    @Override
+    public HealthStatus getStatus(int port) {
+        return getStatus(OptionalInt.of(port));
+    }
+
+    private HealthStatus getStatus(OptionalInt port) {
         try {
-            URI url = properties.getIntegrasjonspunkt().getHealthURL().toURI();
+            URI url = withPort(properties.getIntegrasjonspunkt().getHealthURL().toURI(), port);
             log.trace("Fetching health status from URL: {}", url);
             Mono<HealthStatus> healthResourceMono = webClient.get().uri(url)
                     .accept(MediaType.APPLICATION_JSON)
@@ -60,9 +71,18 @@ public class WebClientActuatorClient implements ActuatorClient {
 
     @Override
     public boolean requestShutdown() {
+        return requestShutdown(OptionalInt.empty());
+    }
+
+    @Override
+    public boolean requestShutdown(int port) {
+        return requestShutdown(OptionalInt.of(port));
+    }
+
+    private boolean requestShutdown(OptionalInt port) {
         try {
             log.info("Requesting shutdown");
-            URI url = properties.getIntegrasjonspunkt().getShutdownURL().toURI();
+            URI url = withPort(properties.getIntegrasjonspunkt().getShutdownURL().toURI(), port);
             log.trace("Requesting shutdown at URL: {}", url);
             Mono<ResponseEntity<ShutdownResource>> httpStatusMono = webClient.post().uri(url)
                     .accept(MediaType.APPLICATION_JSON)
@@ -81,8 +101,17 @@ public class WebClientActuatorClient implements ActuatorClient {
 
     @Override
     public VersionInfo getVersionInfo() {
+        return getVersionInfo(OptionalInt.empty());
+    }
+
+    @Override
+    public VersionInfo getVersionInfo(int port) {
+        return getVersionInfo(OptionalInt.of(port));
+    }
+
+    private VersionInfo getVersionInfo(OptionalInt port) {
         try {
-            URI infoUri = properties.getIntegrasjonspunkt().getInfoURL().toURI();
+            URI infoUri = withPort(properties.getIntegrasjonspunkt().getInfoURL().toURI(), port);
             log.trace("Fetching version info from URI {}", infoUri);
             Mono<InfoResource> infoResourceMono = webClient.get().uri(infoUri)
                     .accept(MediaType.APPLICATION_JSON)
@@ -101,6 +130,12 @@ public class WebClientActuatorClient implements ActuatorClient {
         return VersionInfo.builder().resolved(false).build();
     }
 
+    private static URI withPort(URI uri, OptionalInt port) {
+        return port.isPresent()
+                ? UriComponentsBuilder.fromUri(uri).port(port.getAsInt()).build(true).toUri()
+                : uri;
+    }
+
     private static VersionInfo.VersionInfoBuilder applyInfoResourceBuilder(InfoResource infoResource) {
         return VersionInfo.builder()
                 .resolved(infoResource.getBuild() != null)
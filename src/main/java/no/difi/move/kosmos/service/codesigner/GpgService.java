@@ -1,5 +1,5 @@
 package no.difi.move.kosmos.service.codesigner;
 
 public interface GpgService {
-    boolean verify(String signedDataFilePath, String signatureFilePath);
+    SignedDataVerifier createVerifier(String signature);
 }
@@ -6,12 +6,12 @@ import no.difi.move.kosmos.action.KosmosActionException;
 import no.difi.move.kosmos.config.KosmosProperties;
 import org.bouncycastle.openpgp.*;
 import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
-import org.bouncycastle.openpgp.jcajce.JcaPGPPublicKeyRingCollection;
 import org.bouncycastle.openpgp.operator.jcajce.JcaPGPContentVerifierBuilderProvider;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -25,13 +25,12 @@ public class GpgServiceImpl implements GpgService {
 
     private final KosmosProperties properties;
     private final PublicKeyVerifier keyVerifier;
+    private final PublicKeyRingCache keyRingCache = new PublicKeyRingCache();
 
     @Override
-    public boolean verify(String signedData, String downloadedSignature) {
-        if (isNullOrEmpty(signedData) || isNullOrEmpty(downloadedSignature)) {
-            throw new IllegalArgumentException("One or multiple values are null. " +
-                    "\nSignedDataFilePath: " + signedData +
-                    "\nSignature: " + downloadedSignature);
+    public SignedDataVerifier createVerifier(String downloadedSignature) {
+        if (isNullOrEmpty(downloadedSignature)) {
+            throw new IllegalArgumentException("Cannot verify signed data without a signature");
         }
         final List<Resource> publicKeyPaths = properties.getVerification().getPublicKeyPaths();
         if (publicKeyPaths.isEmpty()) {
@@ -41,58 +40,21 @@ public class GpgServiceImpl implements GpgService {
         PGPSignature signature = Optional.ofNullable(readSignature(downloadedSignature))
                 .orElseThrow(() -> new KosmosActionException(
                         String.format("Unable to read GPG signature from %s", downloadedSignature)));
+        log.info("Looking for signer key");
         PGPPublicKey signerKey = publicKeyPaths.stream()
-                .map(this::readPublicKey)
-                .filter(Objects::nonNull)
-                .map(file -> getSignerKey(signature, file))
+                .map(path -> getSignerKey(signature, path))
                 .filter(Objects::nonNull)
                 .findAny()
                 .orElseThrow(() -> new KosmosActionException("Signer public key not found in keyring"));
         keyVerifier.verify(signerKey);
-        return doVerify(signedData, signature, signerKey);
-    }
-
-    private boolean doVerify(String signedData, PGPSignature signature, PGPPublicKey publicKey) {
-        log.debug("Attempting GPG verification with public key {}", publicKey.getKeyID());
-        try (InputStream signedDataStream = new BufferedInputStream(new FileInputStream(signedData))) {
-            signature.init(new JcaPGPContentVerifierBuilderProvider(), publicKey);
-            byte[] buffer = new byte[1024];
-            int read = 0;
-            while ((read = signedDataStream.read(buffer)) != -1) {
-                signature.update(buffer, 0, read);
-            }
-            return signature.verify();
-        } catch (IOException e) {
-            log.error("Could not read the signed data", e);
-        } catch (PGPException e) {
-            log.error("Could not verify GPG signature", e);
-        }
-        log.debug("Verification failed for key {}", publicKey.getKeyID());
-        return false;
+        log.debug("Attempting GPG verification with public key {}", signerKey.getKeyID());
+        return new PGPSignedDataVerifier(signature, signerKey);
     }
 
-    private PGPPublicKey getSignerKey(PGPSignature signature, PGPPublicKeyRingCollection file) {
-        log.info("Looking for signer key");
+    private PGPPublicKey getSignerKey(PGPSignature signature, Resource path) {
         final long keyID = signature.getKeyID();
-        log.trace("Looking for signer key {} in file {}", keyID, file);
-        try {
-            return file.getPublicKey(keyID);
-        } catch (PGPException e) {
-            log.warn("Could not get signer public key from file {}", file);
-        }
-        return null;
-    }
-
-    private PGPPublicKeyRingCollection readPublicKey(Resource path) {
-        log.info("Reads public key from {}", path);
-        try (InputStream keyStream = PGPUtil.getDecoderStream(new FileInputStream(path.getFile()))) {
-            return new JcaPGPPublicKeyRingCollection(keyStream);
-        } catch (IOException e) {
-            log.warn("Could not read public key from {}", path, e);
-        } catch (PGPException e) {
-            log.warn("Invalid public key encountered in {}", path, e);
-        }
-        return null;
+        log.trace("Looking for signer key {} in file {}", keyID, path);
+        return keyRingCache.getPublicKey(path, keyID);
     }
 
     private PGPSignature readSignature(String signature) {
@@ -107,4 +69,48 @@ public class GpgServiceImpl implements GpgService {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    private static class PGPSignedDataVerifier implements SignedDataVerifier {
+
+        private final PGPSignature signature;
+        private final PGPPublicKey publicKey;
+
+        PGPSignedDataVerifier(PGPSignature signature, PGPPublicKey publicKey) {
+            this.signature = signature;
+            this.publicKey = publicKey;
+            reset();
+        }
+
+        @Override
+        public void reset() {
+            try {
+                signature.init(new JcaPGPContentVerifierBuilderProvider(), publicKey);
+            } catch (PGPException e) {
+                throw new KosmosActionException("Could not initialize GPG signature verification", e);
+            }
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            if (data.hasArray()) {
+                signature.update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                data.position(data.limit());
+            } else {
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                signature.update(bytes);
+            }
+        }
+
+        @Override
+        public boolean verify() {
+            try {
+                return signature.verify();
+            } catch (PGPException e) {
+                log.error("Could not verify GPG signature", e);
+            }
+            log.debug("Verification failed for key {}", publicKey.getKeyID());
+            return false;
+        }
+    }
+}
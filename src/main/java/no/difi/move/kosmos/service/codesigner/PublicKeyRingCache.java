@@ -0,0 +1,87 @@
+package no.difi.move.kosmos.service.codesigner;
+
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.jcajce.JcaPGPPublicKeyRingCollection;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed public keyrings by key ID, per key file. A file is parsed again only when its
+ * last-modified time or content hash differs from what was parsed last time.
+ */
+@Slf4j
+class PublicKeyRingCache {
+
+    private final Map<String, KeyRing> keyRings = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the public key with the given ID from the key file, or null if the file does not hold it
+     * or cannot be read.
+     */
+    PGPPublicKey getPublicKey(Resource resource, long keyID) {
+        return Optional.ofNullable(getKeyRing(resource))
+                .map(keyRing -> keyRing.getPublicKeys().get(keyID))
+                .orElse(null);
+    }
+
+    private KeyRing getKeyRing(Resource resource) {
+        try {
+            File file = resource.getFile();
+            String path = file.getAbsolutePath();
+            long lastModified = file.lastModified();
+            byte[] content = Files.readAllBytes(file.toPath());
+            byte[] hash = sha256(content);
+            KeyRing cached = keyRings.get(path);
+            if (cached != null && cached.getLastModified() == lastModified && Arrays.equals(cached.getHash(), hash)) {
+                return cached;
+            }
+            log.info("Reads public key from {}", resource);
+            KeyRing keyRing = new KeyRing(lastModified, hash, parse(content));
+            keyRings.put(path, keyRing);
+            return keyRing;
+        } catch (IOException e) {
+            log.warn("Could not read public key from {}", resource, e);
+        } catch (PGPException e) {
+            log.warn("Invalid public key encountered in {}", resource, e);
+        }
+        return null;
+    }
+
+    private static Map<Long, PGPPublicKey> parse(byte[] content) throws IOException, PGPException {
+        try (InputStream keyStream = PGPUtil.getDecoderStream(new ByteArrayInputStream(content))) {
+            Map<Long, PGPPublicKey> publicKeys = new HashMap<>();
+            Iterator<PGPPublicKeyRing> rings = new JcaPGPPublicKeyRingCollection(keyStream).getKeyRings();
+            while (rings.hasNext()) {
+                rings.next().getPublicKeys().forEachRemaining(key -> publicKeys.putIfAbsent(key.getKeyID(), key));
+            }
+            return Collections.unmodifiableMap(publicKeys);
+        }
+    }
+
+    @SneakyThrows(NoSuchAlgorithmException.class)
+    private static byte[] sha256(byte[] content) {
+        return MessageDigest.getInstance("SHA-256").digest(content);
+    }
+
+    @Value
+    private static class KeyRing {
+        long lastModified;
+        byte[] hash;
+        Map<Long, PGPPublicKey> publicKeys;
+    }
+}
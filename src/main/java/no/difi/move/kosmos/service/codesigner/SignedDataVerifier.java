@@ -0,0 +1,15 @@
+package no.difi.move.kosmos.service.codesigner;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Verifies a detached signature incrementally, as the signed data becomes available.
+ */
+public interface SignedDataVerifier {
+
+    void reset();
+
+    void update(ByteBuffer data);
+
+    boolean verify();
+}
@@ -0,0 +1,59 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.RequiredArgsConstructor;
+import no.difi.move.kosmos.service.launcher.dto.ProcessMetadata;
+import org.zeroturnaround.exec.ProcessResult;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A process launched by an earlier Kosmos. It is not a child of this one, so its exit can only be seen by polling,
+ * and its exit code is not known.
+ */
+@RequiredArgsConstructor
+class AdoptedProcess implements Future<ProcessResult> {
+
+    static final int UNKNOWN_EXIT_VALUE = -1;
+    private static final long POLL_INTERVAL_IN_MS = 1000;
+
+    private final PidFile pidFile;
+    private final ProcessMetadata metadata;
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return !pidFile.isAlive(metadata);
+    }
+
+    @Override
+    public ProcessResult get() throws InterruptedException {
+        while (!isDone()) {
+            Thread.sleep(POLL_INTERVAL_IN_MS);
+        }
+        return new ProcessResult(UNKNOWN_EXIT_VALUE, null);
+    }
+
+    @Override
+    public ProcessResult get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isDone()) {
+            long remainingInMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingInMs <= 0) {
+                throw new TimeoutException();
+            }
+            Thread.sleep(Math.min(POLL_INTERVAL_IN_MS, remainingInMs));
+        }
+        return new ProcessResult(UNKNOWN_EXIT_VALUE, null);
+    }
+}
@@ -0,0 +1,45 @@
+package no.difi.move.kosmos.service.launcher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The stdout of a launched process, handed first to the startup log and then, once startup is over,
+ * straight to a file, so the output of a long-running process is not decoded and split into lines.
+ */
+class ChildOutputStream extends OutputStream {
+
+    private OutputStream target;
+
+    ChildOutputStream(OutputStream target) {
+        this.target = target;
+    }
+
+    /**
+     * Sends all output from now on to the given stream, flushing what the current one has buffered.
+     */
+    synchronized void switchTo(OutputStream next) throws IOException {
+        target.flush();
+        target = next;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        target.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        target.write(bytes, offset, length);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        target.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        target.close();
+    }
+}
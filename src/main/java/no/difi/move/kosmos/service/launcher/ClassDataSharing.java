@@ -0,0 +1,96 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import org.springframework.stereotype.Component;
+import org.zeroturnaround.exec.ProcessExecutor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Where the class data archive of a version is kept, and whether the Java runtime can write and use it.
+ * Archives are written at exit of a training run with -XX:ArchiveClassesAtExit, which came with Java 13.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClassDataSharing {
+
+    static final int MIN_JAVA_VERSION = 13;
+    private static final Pattern JAVA_VERSION_PATTERN = Pattern.compile("version \"(?:1\\.)?(\\d+)");
+    private static final String ARCHIVE_SUFFIX = ".jsa";
+
+    private final KosmosProperties properties;
+    private final Map<String, Boolean> supportedByJava = new ConcurrentHashMap<>();
+
+    /**
+     * The archive of the JAR, if there is one and class data sharing is enabled for the given java executable.
+     */
+    Optional<Path> getArchive(String jarPath, String java) {
+        if (!isEnabled(java)) {
+            return Optional.empty();
+        }
+        Path archive = getArchivePath(jarPath);
+        return Files.isRegularFile(archive) ? Optional.of(archive) : Optional.empty();
+    }
+
+    boolean isEnabled(String java) {
+        return properties.getIntegrasjonspunkt().getClassDataSharing().isEnabled() && isSupported(java);
+    }
+
+    private boolean isSupported(String java) {
+        Boolean supported = supportedByJava.get(java);
+        if (supported == null) {
+            supported = getJavaVersion(java)
+                    .map(version -> version >= MIN_JAVA_VERSION)
+                    .orElse(false);
+            if (!supported) {
+                log.warn("Class data sharing needs Java {} or later, not available with {}", MIN_JAVA_VERSION, java);
+            }
+            supportedByJava.put(java, supported);
+        }
+        return supported;
+    }
+
+    private Optional<Integer> getJavaVersion(String java) {
+        try {
+            String output = new ProcessExecutor(java, "-version")
+                    .redirectErrorStream(true)
+                    .readOutput(true)
+                    .timeout(30, TimeUnit.SECONDS)
+                    .execute()
+                    .outputUTF8();
+            return parseJavaVersion(output);
+        } catch (IOException | TimeoutException e) {
+            log.warn("Could not get the version of {}", java, e);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The feature version in the output of java -version, such as 8 for 1.8.0_292 and 17 for 17.0.2.
+     */
+    static Optional<Integer> parseJavaVersion(String output) {
+        Matcher matcher = JAVA_VERSION_PATTERN.matcher(output);
+        return matcher.find() ? Optional.of(Integer.parseInt(matcher.group(1))) : Optional.empty();
+    }
+
+    static Path getArchivePath(String jarPath) {
+        String base = jarPath.endsWith(".jar") ? jarPath.substring(0, jarPath.length() - ".jar".length()) : jarPath;
+        return Paths.get(base + ARCHIVE_SUFFIX);
+    }
+}
@@ -0,0 +1,423 @@
+package no.difi.move.kosmos.service.launcher;
+
+import com.google.common.io.BaseEncoding;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
+import org.apache.commons.io.FileUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validated Spring Boot JARs extracted next to themselves, so integrasjonspunkt can be launched with its main class
+ * and a plain classpath instead of through the nested JARs. Each extracted directory holds an index with the SHA-1
+ * of the JAR it came from, a SHA-256 of everything else in it and a snapshot of the name, size and modification time
+ * of those files. Before every launch the SHA-1 is checked against the verified hash of the JAR and the snapshot
+ * against the files, which only takes a listing. The full SHA-256 is checked whenever the JAR is extracted,
+ * and a directory that fails it is extracted again. A directory that fails a check is not launched from.
+ * <p>
+ * The dependency JARs are kept once in the {@link LibraryStore} and linked into each directory. The index lists
+ * their SHA-256, which is what they are counted as used by when the store is cleaned up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExplodedLayout {
+
+    static final String INDEX_FILE_NAME = "kosmos-index.properties";
+    private static final String JAR_HASH = "jar-sha1";
+    private static final String TREE_HASH = "tree-sha256";
+    private static final String TREE_SNAPSHOT = "tree-snapshot";
+    private static final String STAGING_SUFFIX = ".staging-";
+    private static final String START_CLASS = "start-class";
+    private static final String CLASSPATH = "classpath";
+    private static final String LIBS = "lib-sha256";
+    private static final String CLASSES = "BOOT-INF/classes/";
+    private static final String LIB = "BOOT-INF/lib/";
+    private static final String CLASSPATH_INDEX = "BOOT-INF/classpath.idx";
+
+    private final KosmosProperties properties;
+    private final KosmosDirectoryRepo kosmosDirectoryRepo;
+    private final LibraryStore libraryStore;
+
+    /**
+     * Extracts the JAR, unless it already has been and nothing in the extracted directory has changed since.
+     * Only a JAR that matches its verified hash is extracted.
+     *
+     * @return false if the JAR can not be launched from an extracted directory
+     */
+    public boolean extract(String jarPath) {
+        if (!properties.getIntegrasjonspunkt().isExploded()) {
+            return false;
+        }
+        Path jar = Paths.get(jarPath);
+        Path directory = getDirectory(jarPath);
+        String verifiedHash = kosmosDirectoryRepo.getVerifiedHash(jar.toFile());
+        if (verifiedHash == null) {
+            log.info("Not extracting {}, as it has not been verified", jarPath);
+            return false;
+        }
+        try {
+            Optional<Properties> index = readIndex(directory);
+            if (index.isPresent() && verifiedHash.equals(index.get().getProperty(JAR_HASH))) {
+                if (hashTree(directory).equals(index.get().getProperty(TREE_HASH))
+                        && snapshotTree(directory).equals(index.get().getProperty(TREE_SNAPSHOT))) {
+                    log.debug("{} has already been extracted", jarPath);
+                    return true;
+                }
+                log.warn("{} has changed since it was extracted, extracting it again", directory);
+            }
+            deleteStaging(directory);
+            String jarHash = hash(jar, "SHA-1");
+            if (!jarHash.equals(verifiedHash)) {
+                log.warn("Not extracting {}, its SHA-1 {} is not the verified {}", jarPath, jarHash, verifiedHash);
+                return false;
+            }
+            doExtract(jar, directory, jarHash);
+            // Archived for launches from the JAR, which has another classpath
+            Files.deleteIfExists(ClassDataSharing.getArchivePath(jarPath));
+            log.info("Extracted {} to {}", jarPath, directory);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not extract {}", jarPath, e);
+            return false;
+        }
+    }
+
+    /**
+     * The main class and classpath to launch the JAR with, if it has been extracted and nothing has changed since.
+     * Classpath entries in the home directory are relative to it, as that is where integrasjonspunkt runs.
+     */
+    Optional<Exploded> get(String jarPath) {
+        if (!properties.getIntegrasjonspunkt().isExploded()) {
+            return Optional.empty();
+        }
+        Path directory = getDirectory(jarPath);
+        Optional<Properties> index = readIndex(directory);
+        if (!index.isPresent()) {
+            log.debug("{} has not been extracted", jarPath);
+            return Optional.empty();
+        }
+        String verifiedHash = kosmosDirectoryRepo.getVerifiedHash(Paths.get(jarPath).toFile());
+        if (verifiedHash == null || !verifiedHash.equals(index.get().getProperty(JAR_HASH))) {
+            log.warn("{} was not extracted from the verified JAR, launching from the JAR", directory);
+            return Optional.empty();
+        }
+        try {
+            if (!snapshotTree(directory).equals(index.get().getProperty(TREE_SNAPSHOT))) {
+                log.warn("{} has changed since it was extracted, launching from the JAR", directory);
+                return Optional.empty();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not check {}, launching from the JAR", directory, e);
+            return Optional.empty();
+        }
+        Path home = Paths.get(properties.getIntegrasjonspunkt().getHome()).toAbsolutePath();
+        List<String> classpath = Arrays.stream(index.get().getProperty(CLASSPATH).split(","))
+                .map(entry -> directory.toAbsolutePath().resolve(entry))
+                .map(entry -> entry.startsWith(home) ? home.relativize(entry) : entry)
+                .map(Path::toString)
+                .collect(Collectors.toList());
+        return Optional.of(new Exploded(index.get().getProperty(START_CLASS), classpath));
+    }
+
+    /**
+     * Deletes the extracted directories of JARs that are gone, and then what the library store holds
+     * that no remaining directory uses.
+     */
+    public void deleteOrphaned() {
+        Path home = Paths.get(properties.getIntegrasjonspunkt().getHome());
+        if (!Files.isDirectory(home)) {
+            return;
+        }
+        try {
+            Map<String, Integer> referenceCounts = new HashMap<>();
+            for (Path directory : getExtractedDirectories(home)) {
+                if (!Files.exists(directory.resolveSibling(directory.getFileName() + ".jar"))) {
+                    log.info("Deleting {}, as its JAR is gone", directory);
+                    delete(directory);
+                    continue;
+                }
+                readIndex(directory)
+                        .map(index -> index.getProperty(LIBS, ""))
+                        .ifPresent(libs -> Arrays.stream(libs.split(","))
+                                .filter(hash -> !hash.isEmpty())
+                                .forEach(hash -> referenceCounts.merge(hash, 1, Integer::sum)));
+            }
+            int deleted = libraryStore.collectGarbage(referenceCounts);
+            if (deleted > 0) {
+                log.info("Deleted {} dependency JARs no extracted version uses", deleted);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not clean up extracted versions in {}", home, e);
+        }
+    }
+
+    private static List<Path> getExtractedDirectories(Path home) throws IOException {
+        try (Stream<Path> list = Files.list(home)) {
+            return list.filter(Files::isDirectory)
+                    .filter(directory -> directory.getFileName().toString().startsWith("integrasjonspunkt-"))
+                    .filter(directory -> Files.isRegularFile(directory.resolve(INDEX_FILE_NAME)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static Path getDirectory(String jarPath) {
+        return Paths.get(jarPath.endsWith(".jar") ? jarPath.substring(0, jarPath.length() - ".jar".length()) : jarPath + ".d");
+    }
+
+    private void doExtract(Path jar, Path directory, String jarHash) throws IOException {
+        Path staging = Files.createTempDirectory(directory.toAbsolutePath().getParent(), directory.getFileName() + STAGING_SUFFIX);
+        try {
+            Properties index = new Properties();
+            try (JarFile jarFile = new JarFile(jar.toFile())) {
+                Manifest manifest = jarFile.getManifest();
+                String startClass = manifest == null ? null : manifest.getMainAttributes().getValue("Start-Class");
+                if (startClass == null) {
+                    throw new IOException("No Start-Class in the manifest of " + jar + ", it is not a Spring Boot JAR");
+                }
+                List<String> libs = new ArrayList<>();
+                List<String> libHashes = new ArrayList<>();
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    Path target = staging.resolve(entry.getName()).normalize();
+                    if (!target.startsWith(staging)) {
+                        throw new IOException("Entry " + entry.getName() + " would be extracted outside " + directory);
+                    }
+                    if (entry.isDirectory()) {
+                        Files.createDirectories(target);
+                        continue;
+                    }
+                    Files.createDirectories(target.getParent());
+                    if (entry.getName().startsWith(LIB) && entry.getName().endsWith(".jar")) {
+                        libHashes.add(libraryStore.link(jarFile, entry, target));
+                        libs.add(entry.getName());
+                        continue;
+                    }
+                    try (InputStream in = jarFile.getInputStream(entry)) {
+                        Files.copy(in, target);
+                    }
+                }
+                List<String> classpath = new ArrayList<>();
+                classpath.add(CLASSES);
+                classpath.addAll(orderLibs(staging, libs));
+                index.setProperty(START_CLASS, startClass);
+                index.setProperty(CLASSPATH, String.join(",", classpath));
+                index.setProperty(LIBS, String.join(",", libHashes));
+            }
+            index.setProperty(JAR_HASH, jarHash);
+            index.setProperty(TREE_HASH, hashTree(staging));
+            index.setProperty(TREE_SNAPSHOT, snapshotTree(staging));
+            try (OutputStream out = Files.newOutputStream(staging.resolve(INDEX_FILE_NAME))) {
+                index.store(out, "Extracted by Kosmos from " + jar.getFileName());
+            }
+            setReadOnly(staging);
+            replace(directory, staging);
+        } finally {
+            if (Files.exists(staging)) {
+                delete(staging);
+            }
+        }
+    }
+
+    /**
+     * Moves the staging directory into place. A directory already there may be what a running instance was launched
+     * from, so it is moved aside rather than deleted, and only deleted once the new one is in place. Each step is
+     * a rename, so the directory is never half deleted or rewritten, and what the instance loads later is found
+     * in the new directory, extracted from the same JAR. If the directory can not be moved aside, as on Windows
+     * while it is in use, it is kept as it is.
+     */
+    private static void replace(Path directory, Path staging) throws IOException {
+        if (!Files.exists(directory)) {
+            Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        Path replaced = directory.resolveSibling(directory.getFileName() + STAGING_SUFFIX + "replaced-" + UUID.randomUUID());
+        Files.move(directory, replaced, StandardCopyOption.ATOMIC_MOVE);
+        try {
+            Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(replaced, directory, StandardCopyOption.ATOMIC_MOVE);
+            throw e;
+        }
+        try {
+            delete(replaced);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not delete {}, it is deleted by the next extraction", replaced, e);
+        }
+    }
+
+    /**
+     * The libraries in the order of the classpath index of Spring Boot 2.3 and later, or else in the order
+     * they are in the JAR, which is the order JarLauncher uses.
+     */
+    private static List<String> orderLibs(Path root, List<String> libs) throws IOException {
+        Path classpathIndex = root.resolve(CLASSPATH_INDEX);
+        if (!Files.isRegularFile(classpathIndex)) {
+            return libs;
+        }
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(classpathIndex, StandardCharsets.UTF_8)) {
+            String lib = line.replaceFirst("^- ", "").replace("\"", "").trim();
+            if (!lib.isEmpty()) {
+                ordered.add(lib.startsWith(LIB) ? lib : LIB + lib);
+            }
+        }
+        ordered.retainAll(libs);
+        ordered.addAll(libs);
+        return new ArrayList<>(ordered);
+    }
+
+    private static Optional<Properties> readIndex(Path directory) {
+        Path indexFile = directory.resolve(INDEX_FILE_NAME);
+        if (!Files.isRegularFile(indexFile)) {
+            return Optional.empty();
+        }
+        Properties index = new Properties();
+        try (InputStream in = Files.newInputStream(indexFile)) {
+            index.load(in);
+        } catch (IOException e) {
+            log.warn("Could not read {}", indexFile, e);
+            return Optional.empty();
+        }
+        boolean complete = Stream.of(JAR_HASH, TREE_HASH, TREE_SNAPSHOT, START_CLASS, CLASSPATH).allMatch(index::containsKey);
+        return complete ? Optional.of(index) : Optional.empty();
+    }
+
+    /**
+     * Deletes what a crashed extraction of the directory has left behind.
+     */
+    private static void deleteStaging(Path directory) throws IOException {
+        Path parent = directory.toAbsolutePath().getParent();
+        String prefix = directory.getFileName() + STAGING_SUFFIX;
+        try (Stream<Path> list = Files.list(parent)) {
+            for (Path staging : list.filter(path -> path.getFileName().toString().startsWith(prefix)).collect(Collectors.toList())) {
+                log.info("Deleting {}, left by an extraction that did not complete", staging);
+                delete(staging);
+            }
+        }
+    }
+
+    /**
+     * SHA-256 over the name, size and modification time of every file but the index, in name order.
+     * Reads no content, so it is cheap enough for every launch.
+     */
+    static String snapshotTree(Path root) throws IOException {
+        MessageDigest digest = getDigest("SHA-256");
+        for (Path file : listFiles(root)) {
+            digest.update(getEntryName(root, file).getBytes(StandardCharsets.UTF_8));
+            digest.update(ByteBuffer.allocate(1 + 2 * Long.BYTES).put((byte) 0)
+                    .putLong(Files.size(file))
+                    .putLong(Files.getLastModifiedTime(file).toMillis())
+                    .array());
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * SHA-256 over the name, size and content of every file but the index, in name order.
+     */
+    static String hashTree(Path root) throws IOException {
+        MessageDigest digest = getDigest("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+        for (Path file : listFiles(root)) {
+            digest.update(getEntryName(root, file).getBytes(StandardCharsets.UTF_8));
+            digest.update(ByteBuffer.allocate(Long.BYTES + 1).put((byte) 0).putLong(Files.size(file)).array());
+            update(digest, file, buffer);
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    private static List<Path> listFiles(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(file -> !file.equals(root.resolve(INDEX_FILE_NAME)))
+                    .sorted(Comparator.comparing(file -> getEntryName(root, file)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String hash(Path file, String algorithm) throws IOException {
+        MessageDigest digest = getDigest(algorithm);
+        update(digest, file, new byte[64 * 1024]);
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, Path file, byte[] buffer) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static MessageDigest getDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+
+    private static String getEntryName(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static void setReadOnly(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.filter(Files::isRegularFile).forEach(file -> file.toFile().setWritable(false, false));
+        }
+    }
+
+    /**
+     * Deletes a directory tree. Where that requires the files to be writable, as on Windows, they are made so first,
+     * which also makes their links in the library store writable. Elsewhere those are left read-only.
+     */
+    private static void delete(Path root) throws IOException {
+        if (!root.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.filter(Files::isRegularFile).forEach(file -> file.toFile().setWritable(true));
+            }
+        }
+        FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @Value
+    static class Exploded {
+        String startClass;
+        List<String> classpath;
+    }
+}
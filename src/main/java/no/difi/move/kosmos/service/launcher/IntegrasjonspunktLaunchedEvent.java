@@ -0,0 +1,16 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.Value;
+import org.zeroturnaround.exec.ProcessResult;
+
+import java.util.concurrent.Future;
+
+/**
+ * Published once a launched integrasjonspunkt is UP, handing over the process for others to watch.
+ */
+@Value
+public class IntegrasjonspunktLaunchedEvent {
+
+    String jarPath;
+    Future<ProcessResult> process;
+}
@@ -5,4 +5,18 @@ import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
 public interface LauncherService {
 
     LaunchResult launchIntegrasjonspunkt(String jarPath);
+
+    /**
+     * Stops the active instance, forcibly if it does not stop when asked.
+     *
+     * @return false if it is still running
+     */
+    boolean shutdownIntegrasjonspunkt();
+
+    /**
+     * Creates the class data archive the JAR is launched with from now on, if class data sharing is enabled.
+     *
+     * @return false if no archive was created
+     */
+    boolean createClassDataArchive(String jarPath);
 }
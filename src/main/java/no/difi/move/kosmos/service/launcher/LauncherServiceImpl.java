@@ -3,79 +3,394 @@ package no.difi.move.kosmos.service.launcher;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.ClassDataSharingProperties;
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
 import no.difi.move.kosmos.config.KosmosProperties;
 import no.difi.move.kosmos.domain.HealthStatus;
+import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
 import no.difi.move.kosmos.service.actuator.ActuatorService;
 import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
 import no.difi.move.kosmos.service.launcher.dto.LaunchStatus;
+import no.difi.move.kosmos.service.launcher.dto.ProcessMetadata;
+import no.difi.move.kosmos.service.launcher.dto.StartupFailure;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.zeroturnaround.exec.ProcessExecutor;
 import org.zeroturnaround.exec.ProcessResult;
+import org.zeroturnaround.exec.StartedProcess;
+import org.zeroturnaround.exec.listener.ProcessListener;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class LauncherServiceImpl implements LauncherService {
 
+    static final String CONSOLE_LOG_FILE_NAME = "integrasjonspunkt-console.log";
+
     private final KosmosProperties properties;
     private final ActuatorService actuatorService;
     private final EnvironmentService environmentService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProcessTracker processTracker;
+    private final KosmosDirectoryRepo kosmosDirectoryRepo;
+    private final ClassDataSharing classDataSharing;
+    private final ExplodedLayout explodedLayout;
+    private final Map<Path, RotatingFileSink> consoleLogs = new ConcurrentHashMap<>();
 
     @Override
     public LaunchResult launchIntegrasjonspunkt(String jarPath) {
         log.info("Starting application: {}", jarPath);
-        return launch(jarPath);
+        if (properties.getIntegrasjonspunkt().getBlueGreen().isEnabled()) {
+            return launchBlueGreen(jarPath);
+        }
+        return launch(jarPath, null);
+    }
+
+    /**
+     * Starts the new version on the idle port while the running one keeps serving,
+     * and shuts the running one down only once the new one is UP.
+     */
+    private LaunchResult launchBlueGreen(String jarPath) {
+        int activePort = actuatorService.getActivePort();
+        if (actuatorService.getStatus() != HealthStatus.UP) {
+            log.info("No running application, starting on port {}", activePort);
+            return launch(jarPath, activePort);
+        }
+
+        int idlePort = actuatorService.getIdlePort();
+        log.info("Starting application on port {} next to the one running on port {}", idlePort, activePort);
+        LaunchResult launchResult = launch(jarPath, idlePort);
+        if (launchResult.getStatus() == LaunchStatus.SUCCESS) {
+            if (!shutdownIntegrasjonspunkt()) {
+                log.warn("The application on port {} did not shut down", activePort);
+            }
+            actuatorService.switchTo(idlePort);
+        }
+        return launchResult;
+    }
+
+    /**
+     * One sink for every process writing to the same file, such as both instances during a blue/green switch,
+     * so they do not rotate the file from under each other.
+     */
+    private RotatingFileSink getConsoleLog(IntegrasjonspunktProperties integrasjonspunkt) {
+        return consoleLogs.computeIfAbsent(Paths.get(integrasjonspunkt.getHome(), CONSOLE_LOG_FILE_NAME),
+                file -> new RotatingFileSink(file, integrasjonspunkt.getConsoleLogMaxBytes(), integrasjonspunkt.getConsoleLogFiles()));
     }
 
     @SneakyThrows(InterruptedException.class)
-    private LaunchResult launch(String jarPath) {
+    private LaunchResult launch(String jarPath, Integer port) {
         LaunchResult launchResult = new LaunchResult()
                 .setJarPath(jarPath);
 
-        try (StartupLog startupLog = new StartupLog(properties.getIntegrasjonspunkt().isIncludeLog())) {
+        StartupMonitor startupMonitor = new StartupMonitor(getFatalSignatures(), getProgressPatterns());
+        IntegrasjonspunktProperties integrasjonspunkt = properties.getIntegrasjonspunkt();
+        try (StartupLog startupLog = new StartupLog(integrasjonspunkt.isIncludeLog(), startupMonitor,
+                integrasjonspunkt.getStartupLogMaxLines(), integrasjonspunkt.getStartupLogMaxBytes())) {
             log.debug("Starting application in {}", jarPath);
 
-            Future<ProcessResult> future = new ProcessExecutor(Arrays.asList(
-                    "java", "-jar", jarPath,
-                    "--management.endpoint.shutdown.enabled=true",
-                    "--app.logger.enableSSL=false",
-                    "--spring.profiles.active=" + properties.getIntegrasjonspunkt().getProfile()))
+            int healthPort = port == null ? actuatorService.getActivePort() : port;
+            List<String> command = getCommand(jarPath, port, healthPort, integrasjonspunkt.getProfile(),
+                    classDataSharing.getArchive(jarPath, getJavaExecutable())
+                            .map(archive -> Collections.singletonList("-XX:SharedArchiveFile=" + archive))
+                            .orElse(Collections.emptyList()));
+
+            Instant startedAt = Instant.now();
+            ChildOutputStream output = new ChildOutputStream(startupLog);
+            StartedProcess process = new ProcessExecutor(command)
                     .directory(new File(properties.getIntegrasjonspunkt().getHome()))
                     .environment(environmentService.getChildProcessEnvironment())
-                    .redirectOutput(startupLog)
-                    .start()
-                    .getFuture();
+                    .redirectOutput(output)
+                    .addListener(new ProcessListener() {
+                        @Override
+                        public void afterStop(Process stopped) {
+                            try {
+                                output.close();
+                            } catch (IOException e) {
+                                log.debug("Could not close the output of {}", jarPath, e);
+                            }
+                        }
+                    })
+                    .start();
+            // Preparing the command is not part of the startup, nor of the time it may go without progress
+            long start = System.nanoTime();
+            startupMonitor.resetQuietTime();
+            Future<ProcessResult> future = process.getFuture();
 
-            LaunchStatus launchStatus = waitForStartup(future);
+            LaunchStatus launchStatus = waitForStartup(future, startupMonitor, () -> actuatorService.getStatus(healthPort),
+                    kosmosDirectoryRepo.getStartupDuration(new File(jarPath)));
             startupLog.stopRecording();
+            if (launchStatus == LaunchStatus.SUCCESS) {
+                output.switchTo(getConsoleLog(integrasjonspunkt));
+            }
             launchResult
                     .setStatus(launchStatus)
-                    .setStartupLog(startupLog.getLog());
+                    .setStartupLog(startupLog.getLog())
+                    .setStartupDuration(Duration.ofNanos(System.nanoTime() - start))
+                    .setFailure(startupMonitor.getFailure());
+            if (launchStatus == LaunchStatus.SUCCESS) {
+                kosmosDirectoryRepo.recordStartupDuration(new File(jarPath), launchResult.getStartupDuration());
+                track(process, jarPath, port, startedAt, command);
+                eventPublisher.publishEvent(new IntegrasjonspunktLaunchedEvent(jarPath, future));
+            }
         } catch (IOException e) {
             log.error("Failed to launch process", e);
             launchResult
                     .setStatus(LaunchStatus.FAILED)
                     .setStartupLog(e.getLocalizedMessage());
+        } finally {
+            actuatorService.invalidate();
         }
 
         return launchResult;
     }
 
-    private LaunchStatus waitForStartup(Future<ProcessResult> futureProcessResult) throws InterruptedException {
+    private void track(StartedProcess process, String jarPath, Integer port, Instant startedAt, List<String> command) {
+        Optional<Long> pid = PidFile.getPid(process.getProcess());
+        if (!pid.isPresent()) {
+            log.debug("No PID for {}, it can not be adopted after a restart of Kosmos", jarPath);
+        }
+        processTracker.track(port, process.getProcess(), pid
+                .map(id -> ProcessMetadata.builder()
+                        .pid(id)
+                        .version(KosmosDirectoryRepo.getVersion(new File(jarPath)))
+                        .jarPath(jarPath)
+                        .port(port)
+                        .startedAt(startedAt)
+                        .command(command)
+                        .build())
+                .orElse(null));
+    }
+
+    /**
+     * Asks the active instance to shut down over HTTP, then escalates to SIGTERM and SIGKILL at the deadlines,
+     * going by the exit of the process rather than its health. Instances Kosmos did not launch or adopt
+     * can only be asked.
+     */
+    @Override
+    @SneakyThrows(InterruptedException.class)
+    public boolean shutdownIntegrasjonspunkt() {
+        int port = actuatorService.getActivePort();
+        Optional<TrackedProcess> tracked = processTracker.get(port);
+        if (!tracked.isPresent() || !tracked.get().isAlive()) {
+            log.debug("No known process on port {}, shutting down over HTTP only", port);
+            return actuatorService.shutdown();
+        }
+
+        TrackedProcess process = tracked.get();
+        try {
+            Duration gracePeriod = Duration.ofMillis((long) properties.getShutdownRetries() * properties.getShutdownPollIntervalInMs());
+            if (actuatorService.requestShutdown() && process.awaitExit(gracePeriod)) {
+                log.info("Application shut down");
+                return true;
+            }
+            log.warn("Application did not shut down within {} ms, sending SIGTERM to {}", gracePeriod.toMillis(), process);
+            process.terminate();
+            if (process.awaitExit(Duration.ofMillis(properties.getShutdownTerminateTimeoutInMs()))) {
+                return true;
+            }
+            log.warn("Application did not stop within {} ms, sending SIGKILL to {}", properties.getShutdownTerminateTimeoutInMs(), process);
+            process.kill();
+            return process.awaitExit(Duration.ofMillis(properties.getShutdownKillTimeoutInMs()));
+        } finally {
+            if (!process.isAlive()) {
+                processTracker.untrack(port);
+            }
+            actuatorService.invalidate();
+        }
+    }
+
+    /**
+     * Starts the JAR once with the training port and profile, stops it as soon as it reports startup,
+     * and keeps the classes it loaded as the archive later launches of the JAR start from.
+     */
+    @Override
+    @SneakyThrows(InterruptedException.class)
+    public boolean createClassDataArchive(String jarPath) {
+        String java = getJavaExecutable();
+        if (!classDataSharing.isEnabled(java)) {
+            return false;
+        }
+        ClassDataSharingProperties cds = properties.getIntegrasjonspunkt().getClassDataSharing();
+        Path archive = ClassDataSharing.getArchivePath(jarPath);
+        Path dump = archive.resolveSibling(archive.getFileName() + ".tmp");
+        List<String> command = getCommand(jarPath, cds.getTrainingPort(), cds.getTrainingPort(), cds.getTrainingProfile(),
+                Collections.singletonList("-XX:ArchiveClassesAtExit=" + dump));
+
+        StartupMonitor startupMonitor = new StartupMonitor(getFatalSignatures(), getProgressPatterns());
+        try (StartupLog startupLog = new StartupLog(false, startupMonitor)) {
+            log.info("Training run of {} on port {} to create {}", jarPath, cds.getTrainingPort(), archive);
+            Process process = new ProcessExecutor(command)
+                    .directory(new File(properties.getIntegrasjonspunkt().getHome()))
+                    .environment(environmentService.getChildProcessEnvironment())
+                    .redirectOutput(startupLog)
+                    .start()
+                    .getProcess();
+            boolean started = startupMonitor.awaitOutcome(cds.getTrainingTimeoutInMs()) && startupMonitor.isStarted();
+            // A normal exit, which SIGTERM gives, is when the JVM writes the archive
+            process.destroy();
+            if (!process.waitFor(properties.getShutdownTerminateTimeoutInMs(), TimeUnit.MILLISECONDS)) {
+                log.warn("Training run of {} did not stop, killing it", jarPath);
+                process.destroyForcibly();
+                process.waitFor(properties.getShutdownKillTimeoutInMs(), TimeUnit.MILLISECONDS);
+                return false;
+            }
+            if (!started) {
+                log.warn("Training run of {} did not start, no class data archive created: {}", jarPath,
+                        Optional.ofNullable(startupMonitor.getFailure()).map(StartupFailure::toString).orElse("timed out"));
+                return false;
+            }
+            if (!Files.isRegularFile(dump)) {
+                log.warn("Training run of {} stopped without writing a class data archive", jarPath);
+                return false;
+            }
+            Files.move(dump, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Created class data archive {}", archive);
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not create a class data archive for {}", jarPath, e);
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(dump);
+            } catch (IOException e) {
+                log.debug("Could not delete {}", dump, e);
+            }
+        }
+    }
+
+    private String getJavaExecutable() {
+        String javaHome = properties.getIntegrasjonspunkt().getJavaHome();
+        return javaHome == null ? "java" : Paths.get(javaHome, "bin", "java").toString();
+    }
+
+    private List<String> getCommand(String jarPath, Integer port, int listenPort, String profile, List<String> extraJvmOptions) {
+        IntegrasjonspunktProperties integrasjonspunkt = properties.getIntegrasjonspunkt();
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("version", KosmosDirectoryRepo.getVersion(Paths.get(jarPath).getFileName().toString()));
+        placeholders.put("home", integrasjonspunkt.getHome());
+        placeholders.put("port", Integer.toString(listenPort));
+        placeholders.put("profile", profile);
+
+        List<String> command = new ArrayList<>();
+        command.add(getJavaExecutable());
+        integrasjonspunkt.getJvmOptions().forEach(option -> command.add(expand(option, placeholders)));
+        command.addAll(extraJvmOptions);
+        Optional<ExplodedLayout.Exploded> exploded = explodedLayout.get(jarPath);
+        if (exploded.isPresent()) {
+            command.addAll(Arrays.asList("-cp", String.join(File.pathSeparator, exploded.get().getClasspath()),
+                    exploded.get().getStartClass()));
+        } else {
+            command.addAll(Arrays.asList("-jar", jarPath));
+        }
+        command.addAll(Arrays.asList(
+                "--management.endpoint.shutdown.enabled=true",
+                "--app.logger.enableSSL=false",
+                "--spring.profiles.active=" + profile));
+        if (port != null) {
+            command.add("--server.port=" + port);
+        }
+        integrasjonspunkt.getArguments().forEach(argument -> command.add(expand(argument, placeholders)));
+        return command;
+    }
+
+    private static String expand(String template, Map<String, String> placeholders) {
+        String expanded = template;
+        for (Map.Entry<String, String> placeholder : placeholders.entrySet()) {
+            expanded = expanded.replace("{" + placeholder.getKey() + "}", String.valueOf(placeholder.getValue()));
+        }
+        return expanded;
+    }
+
+    private Map<String, Pattern> getFatalSignatures() {
+        Map<String, Pattern> signatures = new LinkedHashMap<>();
+        properties.getIntegrasjonspunkt().getFatalStartupPatterns().forEach((name, regex) -> {
+            try {
+                signatures.put(name, Pattern.compile(regex));
+            } catch (PatternSyntaxException e) {
+                log.warn("Ignoring fatal startup pattern {}: {}", name, e.getMessage());
+            }
+        });
+        return signatures;
+    }
+
+    private List<Pattern> getProgressPatterns() {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String regex : properties.getIntegrasjonspunkt().getStartupProgressPatterns()) {
+            try {
+                patterns.add(Pattern.compile(regex));
+            } catch (PatternSyntaxException e) {
+                log.warn("Ignoring startup progress pattern: {}", e.getMessage());
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Probes health with exponential backoff, from launchInitialPollIntervalInMs up to launchPollIntervalInMs.
+     * A wait is cut short when the application logs that it has started, so success is reported right away,
+     * or logs a fatal error, so the launch is given up right away. Until it has started, the launch is given up
+     * as hung once it has shown no progress for launchQuietPeriodInMs. Once it has, it is given up unless it is UP
+     * within launchQuietPeriodInMs. However much progress it shows, it is given up at launchTimeoutInMs. The previous startup of the version, if any, only decides when to warn
+     * that this one is slower than usual.
+     */
+    private LaunchStatus waitForStartup(Future<ProcessResult> futureProcessResult, StartupMonitor startupMonitor,
+                                        Supplier<HealthStatus> health, Duration previousStartup) throws InterruptedException {
+        long timeoutInMs = properties.getLaunchTimeoutInMs();
+        int initialPollIntervalInMs = properties.getLaunchInitialPollIntervalInMs();
         int pollIntervalInMs = properties.getLaunchPollIntervalInMs();
-        int timeoutInMs = properties.getLaunchTimeoutInMs();
-        log.debug("Waiting {} ms for startup with timeout after {}", pollIntervalInMs, timeoutInMs);
+        int quietPeriodInMs = properties.getLaunchQuietPeriodInMs();
+        log.debug("Waiting {}-{} ms between health checks with timeout after {} ms, or {} ms without progress",
+                initialPollIntervalInMs, pollIntervalInMs, timeoutInMs, quietPeriodInMs);
         long start = System.currentTimeMillis();
+        long delayInMs = Math.min(initialPollIntervalInMs, pollIntervalInMs);
+        boolean startupReported = false;
+        long startupReportedAt = 0;
+        long slowAfterInMs = previousStartup == null ? Long.MAX_VALUE : previousStartup.multipliedBy(3).toMillis();
+        if (previousStartup != null) {
+            log.info("This version took {} ms to start last time", previousStartup.toMillis());
+        }
 
+        log.info("Waiting for health check to pass");
         while (true) {
-            log.info("Waiting for health check to pass");
-            Thread.sleep(pollIntervalInMs);
-            if (actuatorService.getStatus() == HealthStatus.UP) {
+            if (startupReported) {
+                Thread.sleep(delayInMs);
+            } else if (startupMonitor.awaitOutcome(delayInMs)) {
+                StartupFailure failure = startupMonitor.getFailure();
+                if (failure != null) {
+                    log.error("Application failed during startup! {}", failure);
+                    futureProcessResult.cancel(true);
+                    return LaunchStatus.FAILED;
+                }
+                log.info("Application reported startup, checking health");
+                startupReported = true;
+                startupReportedAt = System.currentTimeMillis();
+                delayInMs = Math.min(initialPollIntervalInMs, pollIntervalInMs);
+            }
+            if (health.get() == HealthStatus.UP) {
                 log.info("Application started successfully!");
                 return LaunchStatus.SUCCESS;
             }
@@ -83,11 +398,28 @@ public class LauncherServiceImpl implements LauncherService {
                 log.error("Application failed during startup!");
                 return LaunchStatus.FAILED;
             }
-            if (System.currentTimeMillis() - start >= timeoutInMs) {
+            if (!startupReported && startupMonitor.getQuietTime().toMillis() >= quietPeriodInMs) {
+                log.error("Application made no startup progress in " + quietPeriodInMs + "ms!");
+                futureProcessResult.cancel(true);
+                return LaunchStatus.FAILED;
+            }
+            if (startupReported && System.currentTimeMillis() - startupReportedAt >= quietPeriodInMs) {
+                log.error("Application reported startup, but was not UP within " + quietPeriodInMs + "ms!");
+                futureProcessResult.cancel(true);
+                return LaunchStatus.FAILED;
+            }
+            long elapsedInMs = System.currentTimeMillis() - start;
+            if (elapsedInMs >= slowAfterInMs) {
+                log.warn("Application has taken {} ms so far, more than three times its last startup, and is still starting",
+                        elapsedInMs);
+                slowAfterInMs = Long.MAX_VALUE;
+            }
+            if (elapsedInMs >= timeoutInMs) {
                 log.error("Application failed to start in " + timeoutInMs + "ms!");
                 futureProcessResult.cancel(true);
                 return LaunchStatus.FAILED;
             }
+            delayInMs = Math.min(delayInMs * 2, pollIntervalInMs);
         }
     }
 
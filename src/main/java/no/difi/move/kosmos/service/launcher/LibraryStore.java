@@ -0,0 +1,127 @@
+package no.difi.move.kosmos.service.launcher;
+
+import com.google.common.io.BaseEncoding;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Dependency JARs of all extracted versions, stored once each by the SHA-256 of their content in the home directory
+ * and hard linked into the extracted directories. Where hard links are not possible the JAR is copied instead.
+ * What the store holds is only ever read or linked, never changed, so one link can not affect the others.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LibraryStore {
+
+    static final String DIRECTORY_NAME = "kosmos-lib-store";
+    private static final String SUFFIX = ".jar";
+    private static final Pattern STORED_PATTERN = Pattern.compile("^([0-9a-f]{64})\\.jar$");
+
+    private final KosmosProperties properties;
+
+    /**
+     * Links the entry of the JAR to the target, storing it first unless the store already has the same content.
+     * The entry is read twice when it is new, and only once, without being written, when it is not.
+     *
+     * @return the SHA-256 of the entry
+     */
+    synchronized String link(JarFile jarFile, JarEntry entry, Path target) throws IOException {
+        String hash;
+        try (InputStream in = jarFile.getInputStream(entry)) {
+            hash = hash(in);
+        }
+        Path stored = getPath(hash);
+        if (!Files.isRegularFile(stored)) {
+            Files.createDirectories(stored.getParent());
+            Path incoming = Files.createTempFile(stored.getParent(), hash, ".tmp");
+            try {
+                try (InputStream in = jarFile.getInputStream(entry)) {
+                    Files.copy(in, incoming, StandardCopyOption.REPLACE_EXISTING);
+                }
+                incoming.toFile().setWritable(false, false);
+                Files.move(incoming, stored, StandardCopyOption.ATOMIC_MOVE);
+                log.debug("Stored {} as {}", entry.getName(), stored);
+            } finally {
+                Files.deleteIfExists(incoming);
+            }
+        }
+        try {
+            Files.createLink(target, stored);
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("Could not link {} to {}, copying it", target, stored, e);
+            Files.copy(stored, target);
+        }
+        return hash;
+    }
+
+    /**
+     * Deletes everything in the store with no references left.
+     *
+     * @param referenceCounts number of extracted versions using each stored JAR, by its SHA-256
+     * @return number of stored JARs deleted
+     */
+    synchronized int collectGarbage(Map<String, Integer> referenceCounts) throws IOException {
+        Path directory = getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<Path> unreferenced;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            unreferenced = walk.filter(Files::isRegularFile)
+                    .filter(file -> {
+                        Matcher matcher = STORED_PATTERN.matcher(file.getFileName().toString());
+                        return matcher.matches() && referenceCounts.getOrDefault(matcher.group(1), 0) == 0;
+                    })
+                    .collect(Collectors.toList());
+        }
+        for (Path file : unreferenced) {
+            file.toFile().setWritable(true);
+            Files.deleteIfExists(file);
+            log.debug("Deleted {}, no extracted version uses it", file);
+        }
+        return unreferenced.size();
+    }
+
+    private Path getDirectory() {
+        return Paths.get(properties.getIntegrasjonspunkt().getHome(), DIRECTORY_NAME);
+    }
+
+    Path getPath(String hash) {
+        return getDirectory().resolve(hash.substring(0, 2)).resolve(hash + SUFFIX);
+    }
+
+    private static String hash(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+}
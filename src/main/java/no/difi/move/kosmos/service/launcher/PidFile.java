@@ -0,0 +1,185 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.service.launcher.dto.ProcessMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Keeps the PID and command line of the integrasjonspunkt process Kosmos launched last in the home directory.
+ * A process is only recognized as the one in the file if {@code /proc} shows the same arguments for the PID,
+ * so a stale file or a reused PID is never mistaken for integrasjonspunkt.
+ */
+@Slf4j
+@Component
+public class PidFile {
+
+    static final String FILE_NAME = "integrasjonspunkt.pid";
+    private static final String PID = "pid";
+    private static final String VERSION = "version";
+    private static final String JAR_PATH = "jarPath";
+    private static final String PORT = "port";
+    private static final String STARTED_AT = "startedAt";
+    private static final String COMMAND = "command.";
+    /**
+     * The arguments separated by spaces, as earlier versions of Kosmos wrote them.
+     */
+    private static final String LEGACY_COMMAND_LINE = "commandLine";
+
+    private final KosmosProperties properties;
+    private final Path procRoot;
+
+    @Autowired
+    public PidFile(KosmosProperties properties) {
+        this(properties, Paths.get("/proc"));
+    }
+
+    PidFile(KosmosProperties properties, Path procRoot) {
+        this.properties = properties;
+        this.procRoot = procRoot;
+    }
+
+    public void write(ProcessMetadata metadata) {
+        Properties content = new Properties();
+        content.setProperty(PID, Long.toString(metadata.getPid()));
+        content.setProperty(VERSION, metadata.getVersion());
+        content.setProperty(JAR_PATH, metadata.getJarPath());
+        if (metadata.getPort() != null) {
+            content.setProperty(PORT, metadata.getPort().toString());
+        }
+        content.setProperty(STARTED_AT, metadata.getStartedAt().toString());
+        List<String> command = metadata.getCommand();
+        for (int i = 0; i < command.size(); i++) {
+            content.setProperty(COMMAND + i, command.get(i));
+        }
+
+        Path file = getFile();
+        try {
+            Path temp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                content.store(writer, "integrasjonspunkt launched by Kosmos");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote {} for PID {}", file, metadata.getPid());
+        } catch (IOException e) {
+            log.warn("Could not write {}", file, e);
+        }
+    }
+
+    public Optional<ProcessMetadata> read() {
+        Path file = getFile();
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        Properties content = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            content.load(reader);
+            String port = content.getProperty(PORT);
+            return Optional.of(ProcessMetadata.builder()
+                    .pid(Long.parseLong(content.getProperty(PID)))
+                    .version(content.getProperty(VERSION))
+                    .jarPath(content.getProperty(JAR_PATH))
+                    .port(port == null ? null : Integer.valueOf(port))
+                    .startedAt(Instant.parse(content.getProperty(STARTED_AT)))
+                    .command(getCommand(content))
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    private static List<String> getCommand(Properties content) {
+        List<String> command = new ArrayList<>();
+        for (int i = 0; content.containsKey(COMMAND + i); i++) {
+            command.add(content.getProperty(COMMAND + i));
+        }
+        if (command.isEmpty() && content.containsKey(LEGACY_COMMAND_LINE)) {
+            return Arrays.asList(content.getProperty(LEGACY_COMMAND_LINE).split(" "));
+        }
+        return command;
+    }
+
+    /**
+     * Deletes the file if it still records the process, and not one launched after it.
+     */
+    public void delete(ProcessMetadata metadata) {
+        if (read().filter(recorded -> recorded.getPid() == metadata.getPid()
+                && recorded.getStartedAt().equals(metadata.getStartedAt())).isPresent()) {
+            delete();
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(getFile());
+        } catch (IOException e) {
+            log.warn("Could not remove {}", getFile(), e);
+        }
+    }
+
+    /**
+     * Whether the process is still running with the arguments it was launched with.
+     * Always false where there is no {@code /proc}.
+     */
+    public boolean isAlive(ProcessMetadata metadata) {
+        Path cmdline = procRoot.resolve(Long.toString(metadata.getPid())).resolve("cmdline");
+        try {
+            String running = new String(Files.readAllBytes(cmdline), StandardCharsets.UTF_8);
+            // Each argument is terminated by a NUL
+            if (running.isEmpty() || running.charAt(running.length() - 1) != '\0') {
+                return false;
+            }
+            return Arrays.asList(running.substring(0, running.length() - 1).split("\0", -1))
+                    .equals(metadata.getCommand());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The PID of the process, found by reflection as {@code Process.pid()} is Java 9+ and Java 8 only has it
+     * in a private field of the UNIX implementation.
+     */
+    static Optional<Long> getPid(Process process) {
+        if (process == null) {
+            return Optional.empty();
+        }
+        try {
+            Method pid = Process.class.getMethod("pid");
+            return Optional.of((Long) pid.invoke(process));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.trace("Process.pid() not available", e);
+        }
+        try {
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return Optional.of(pid.getLong(process));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Could not find the PID of {}", process.getClass().getName(), e);
+            return Optional.empty();
+        }
+    }
+
+    private Path getFile() {
+        return Paths.get(properties.getIntegrasjonspunkt().getHome(), FILE_NAME);
+    }
+}
@@ -0,0 +1,47 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.dto.ProcessMetadata;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Takes over the integrasjonspunkt process an earlier Kosmos launched, if it is still running,
+ * so that it can be stopped and supervised as if it had just been launched. A process launched on a port of its own,
+ * as blue/green launches are, becomes the active instance again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProcessAdopter {
+
+    private final PidFile pidFile;
+    private final ProcessTracker processTracker;
+    private final ActuatorService actuatorService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public Optional<ProcessMetadata> adopt() {
+        Optional<ProcessMetadata> running = pidFile.read();
+        if (!running.isPresent()) {
+            return Optional.empty();
+        }
+        ProcessMetadata metadata = running.get();
+        if (!pidFile.isAlive(metadata)) {
+            log.info("Integrasjonspunkt {} with PID {} is no longer running", metadata.getVersion(), metadata.getPid());
+            pidFile.delete();
+            return Optional.empty();
+        }
+        log.info("Adopting integrasjonspunkt {} with PID {}, started {}",
+                metadata.getVersion(), metadata.getPid(), metadata.getStartedAt());
+        if (metadata.getPort() != null) {
+            actuatorService.switchTo(metadata.getPort());
+        }
+        processTracker.adopt(metadata);
+        eventPublisher.publishEvent(new IntegrasjonspunktLaunchedEvent(metadata.getJarPath(), new AdoptedProcess(pidFile, metadata)));
+        return running;
+    }
+}
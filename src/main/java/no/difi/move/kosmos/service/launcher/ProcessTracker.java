@@ -0,0 +1,62 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.dto.ProcessMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The integrasjonspunkt processes Kosmos launched or adopted, by the port they listen on.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProcessTracker {
+
+    private final ActuatorService actuatorService;
+    private final PidFile pidFile;
+    private final Map<Integer, TrackedProcess> processes = new ConcurrentHashMap<>();
+
+    /**
+     * Tracks a process this Kosmos launched, recording it in the PID file when its PID is known.
+     *
+     * @param port the port given on the command line, or null for the configured one
+     */
+    void track(Integer port, Process process, ProcessMetadata metadata) {
+        if (process == null && metadata == null) {
+            return;
+        }
+        if (metadata != null) {
+            pidFile.write(metadata);
+        }
+        processes.put(resolve(port), new TrackedProcess(process, metadata, pidFile));
+    }
+
+    void adopt(ProcessMetadata metadata) {
+        processes.put(resolve(metadata.getPort()), new TrackedProcess(null, metadata, pidFile));
+    }
+
+    Optional<TrackedProcess> get(int port) {
+        return Optional.ofNullable(processes.get(port));
+    }
+
+    /**
+     * Stops tracking the process on the port, which has exited, and deletes the PID file if it records that process,
+     * so the next start of Kosmos does not try to adopt it.
+     */
+    void untrack(int port) {
+        TrackedProcess untracked = processes.remove(port);
+        if (untracked != null) {
+            untracked.forget();
+        }
+    }
+
+    private int resolve(Integer port) {
+        return port != null ? port : actuatorService.getActivePort();
+    }
+}
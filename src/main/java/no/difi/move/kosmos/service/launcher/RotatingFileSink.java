@@ -0,0 +1,129 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the bytes it is given unchanged to a file, moving it aside as {@code <name>.1}, {@code <name>.2} and so on
+ * when it reaches its size limit. Never throws: the stream is the child process' stdout, and a writer that
+ * fails would leave the child blocked on a full pipe, so output is dropped instead, until the file is tried again
+ * after a while or the sink is closed. Closing only releases the file, which the next write opens again,
+ * so one sink can be shared by several processes.
+ */
+@Slf4j
+class RotatingFileSink extends OutputStream {
+
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(30);
+
+    private final Path file;
+    private final long maxBytes;
+    private final int files;
+    private final long retryAfterNanos;
+
+    private FileChannel channel;
+    private long size;
+    private boolean failed;
+    private long failedAt;
+
+    /**
+     * @param files number of files kept, including the one being written
+     */
+    RotatingFileSink(Path file, long maxBytes, int files) {
+        this(file, maxBytes, files, DEFAULT_RETRY_AFTER);
+    }
+
+    /**
+     * @param retryAfter how long output is dropped after the file could not be written, before it is tried again
+     */
+    RotatingFileSink(Path file, long maxBytes, int files, Duration retryAfter) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.files = files;
+        this.retryAfterNanos = retryAfter.toNanos();
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        if (length == 0 || failed && System.nanoTime() - failedAt < retryAfterNanos) {
+            return;
+        }
+        failed = false;
+        try {
+            if (channel == null) {
+                open();
+            }
+            if (size > 0 && size + length > maxBytes) {
+                rotate();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                size += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write the output of integrasjonspunkt to {}, discarding it for {} s",
+                    file, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos), e);
+            failed = true;
+            failedAt = System.nanoTime();
+            closeQuietly();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        failed = false;
+        closeQuietly();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        channel = null;
+        Files.deleteIfExists(rotated(files - 1));
+        for (int i = files - 2; i >= 1; i--) {
+            if (Files.exists(rotated(i))) {
+                Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (files > 1) {
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeQuietly() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Could not close {}", file, e);
+        }
+        channel = null;
+    }
+}
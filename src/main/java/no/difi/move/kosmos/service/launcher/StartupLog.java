@@ -3,31 +3,118 @@ package no.difi.move.kosmos.service.launcher;
 import lombok.extern.slf4j.Slf4j;
 import org.zeroturnaround.exec.stream.LogOutputStream;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the first {@value #HEAD_LINES} lines of the startup output and a tail bounded by line count and size
+ * in UTF-8 bytes. Lines that fall out of the tail are counted, not kept. No line, in the head or the tail,
+ * is kept longer than the size limit of the tail.
+ */
 @Slf4j
 class StartupLog extends LogOutputStream {
 
+    static final int HEAD_LINES = 20;
     private static final String VERBOSITY_PREFIX = "[INCLUDED]";
+    private static final int DEFAULT_MAX_LINES = 1000;
+    private static final int DEFAULT_MAX_BYTES = 128 * 1024;
+
     private final boolean verbose;
-    private final StringBuilder logBuilder = new StringBuilder();
+    private final StartupMonitor startupMonitor;
+    private final int maxLines;
+    private final int maxBytes;
+    private final List<String> head = new ArrayList<>(HEAD_LINES);
+    private final Deque<String> tail = new ArrayDeque<>();
 
+    private int tailBytes;
+    private long omittedLines;
     private boolean record = true;
 
     StartupLog(boolean verbose) {
+        this(verbose, new StartupMonitor());
+    }
+
+    StartupLog(boolean verbose, StartupMonitor startupMonitor) {
+        this(verbose, startupMonitor, DEFAULT_MAX_LINES, DEFAULT_MAX_BYTES);
+    }
+
+    StartupLog(boolean verbose, StartupMonitor startupMonitor, int maxLines, int maxBytes) {
         this.verbose = verbose;
+        this.startupMonitor = startupMonitor;
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
     }
 
     @Override
     protected void processLine(String line) {
+        startupMonitor.onLine(line);
         if (record) {
             if (verbose) {
                 log.info(VERBOSITY_PREFIX + " " + line);
             }
 
-            logBuilder.append(line).append("\n");
+            append(line);
+        }
+    }
+
+    private synchronized void append(String line) {
+        String kept = truncate(line);
+        if (head.size() < HEAD_LINES) {
+            head.add(kept);
+            return;
+        }
+        tail.addLast(kept);
+        tailBytes += getSize(kept);
+        while (tail.size() > maxLines || tailBytes > maxBytes) {
+            tailBytes -= getSize(tail.removeFirst());
+            ++omittedLines;
+        }
+    }
+
+    /**
+     * The longest start of the line that fits in the size limit with its line break, without splitting a character.
+     */
+    private String truncate(String line) {
+        if (line.length() * 3 < maxBytes) {
+            return line;
+        }
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer in = CharBuffer.wrap(line);
+        encoder.encode(in, ByteBuffer.allocate(maxBytes - 1), true);
+        return line.substring(0, in.position());
+    }
+
+    /**
+     * Size of the line in UTF-8, with its line break.
+     */
+    private static int getSize(String line) {
+        return line.getBytes(StandardCharsets.UTF_8).length + 1;
+    }
+
+    /**
+     * Hands the recorded head and tail to the consumer one line at a time, with a marker where lines were dropped.
+     */
+    synchronized void forEachLine(Consumer<String> consumer) {
+        head.forEach(consumer);
+        if (omittedLines > 0) {
+            consumer.accept(String.format("... %d lines omitted ...", omittedLines));
         }
+        tail.forEach(consumer);
     }
 
     public String getLog() {
+        StringBuilder logBuilder = new StringBuilder();
+        forEachLine(line -> logBuilder.append(line).append("\n"));
         return logBuilder.toString();
     }
 
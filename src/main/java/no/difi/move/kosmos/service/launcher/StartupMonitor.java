@@ -0,0 +1,103 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.service.launcher.dto.StartupFailure;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Watches the output of the launched application for the line Spring Boot logs once the context is up,
+ * for lines matching a fatal signature, which mean the launch will not succeed,
+ * and for lines showing progress, to tell a slow launch from a hung one.
+ */
+@Slf4j
+class StartupMonitor {
+
+    private static final Pattern STARTED_PATTERN = Pattern.compile("Started \\S+ in [\\d.]+ seconds");
+
+    private final Map<String, Pattern> fatalSignatures;
+    private final List<Pattern> progressPatterns;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch outcome = new CountDownLatch(1);
+
+    private volatile StartupFailure failure;
+    private volatile long lastProgressAt = System.nanoTime();
+
+    StartupMonitor() {
+        this(Collections.emptyMap(), Collections.emptyList());
+    }
+
+    /**
+     * @param fatalSignatures  patterns by the name reported when one of them is found in a line
+     * @param progressPatterns patterns of lines that count as progress, or empty if every line does
+     */
+    StartupMonitor(Map<String, Pattern> fatalSignatures, List<Pattern> progressPatterns) {
+        this.fatalSignatures = fatalSignatures;
+        this.progressPatterns = progressPatterns;
+    }
+
+    void onLine(String line) {
+        if (outcome.getCount() == 0) {
+            return;
+        }
+        if (isProgress(line)) {
+            lastProgressAt = System.nanoTime();
+        }
+        if (STARTED_PATTERN.matcher(line).find()) {
+            log.debug("Application reported startup: {}", line);
+            started.countDown();
+            outcome.countDown();
+            return;
+        }
+        for (Map.Entry<String, Pattern> signature : fatalSignatures.entrySet()) {
+            if (signature.getValue().matcher(line).find()) {
+                log.debug("Application reported fatal error {}: {}", signature.getKey(), line);
+                failure = new StartupFailure(signature.getKey(), line);
+                outcome.countDown();
+                return;
+            }
+        }
+    }
+
+    private boolean isProgress(String line) {
+        return progressPatterns.isEmpty() || progressPatterns.stream().anyMatch(pattern -> pattern.matcher(line).find());
+    }
+
+    /**
+     * Starts the quiet time over, for when the process has only just been started.
+     */
+    void resetQuietTime() {
+        lastProgressAt = System.nanoTime();
+    }
+
+    /**
+     * Time since the last progress line, or since the monitor was created if there has been none.
+     */
+    Duration getQuietTime() {
+        return Duration.ofNanos(System.nanoTime() - lastProgressAt);
+    }
+
+    boolean isStarted() {
+        return started.getCount() == 0;
+    }
+
+    /**
+     * The fatal line seen before the startup line, if any.
+     */
+    StartupFailure getFailure() {
+        return failure;
+    }
+
+    /**
+     * Waits at most the given time for the startup line or a fatal line, returning as soon as either has been seen.
+     */
+    boolean awaitOutcome(long timeoutInMs) throws InterruptedException {
+        return outcome.await(timeoutInMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,99 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.difi.move.kosmos.service.launcher.dto.ProcessMetadata;
+import org.zeroturnaround.exec.ProcessExecutor;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An integrasjonspunkt process Kosmos can signal and wait for. A process this Kosmos launched is handled
+ * through its {@link Process}. One adopted from an earlier Kosmos has only its PID, so it is signalled with
+ * {@code kill} and its exit is seen through {@code /proc}, and only while the PID still runs the recorded command.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class TrackedProcess {
+
+    private static final long ADOPTED_POLL_INTERVAL_IN_MS = 100;
+
+    private final Process process;
+    private final ProcessMetadata metadata;
+    private final PidFile pidFile;
+
+    boolean isAlive() {
+        return process != null ? process.isAlive() : pidFile.isAlive(metadata);
+    }
+
+    /**
+     * Waits for the process to exit.
+     *
+     * @return false if it is still running after the timeout
+     */
+    boolean awaitExit(Duration timeout) throws InterruptedException {
+        if (process != null) {
+            return process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pidFile.isAlive(metadata)) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(ADOPTED_POLL_INTERVAL_IN_MS);
+        }
+        return true;
+    }
+
+    /**
+     * Sends SIGTERM, letting the JVM run its shutdown hooks.
+     */
+    void terminate() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+        } else {
+            signal("TERM");
+        }
+    }
+
+    /**
+     * Sends SIGKILL.
+     */
+    void kill() throws InterruptedException {
+        if (process != null) {
+            process.destroyForcibly();
+        } else {
+            signal("KILL");
+        }
+    }
+
+    private void signal(String signal) throws InterruptedException {
+        if (!pidFile.isAlive(metadata)) {
+            return;
+        }
+        try {
+            new ProcessExecutor("kill", "-" + signal, Long.toString(metadata.getPid()))
+                    .timeout(10, TimeUnit.SECONDS)
+                    .execute();
+        } catch (IOException | TimeoutException e) {
+            log.warn("Could not send SIG{} to PID {}", signal, metadata.getPid(), e);
+        }
+    }
+
+    /**
+     * Deletes the PID file if it records this process.
+     */
+    void forget() {
+        if (metadata != null) {
+            pidFile.delete(metadata);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return metadata != null ? "PID " + metadata.getPid() : process.toString();
+    }
+}
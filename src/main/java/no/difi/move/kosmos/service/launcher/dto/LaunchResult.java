@@ -4,6 +4,7 @@ import lombok.Data;
 import lombok.ToString;
 
 import java.io.Serializable;
+import java.time.Duration;
 
 @Data
 public class LaunchResult implements Serializable {
@@ -12,4 +13,9 @@ public class LaunchResult implements Serializable {
     private LaunchStatus status;
     @ToString.Exclude
     private String startupLog;
+    private Duration startupDuration;
+    /**
+     * Set when the launch was given up because of a fatal line in the startup output.
+     */
+    private StartupFailure failure;
 }
@@ -0,0 +1,28 @@
+package no.difi.move.kosmos.service.launcher.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What Kosmos knows about an integrasjonspunkt process it launched, kept so that a restarted Kosmos can find it again.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ProcessMetadata {
+
+    long pid;
+    String version;
+    String jarPath;
+    /**
+     * Port given on the command line, or null when integrasjonspunkt runs on its configured port.
+     */
+    Integer port;
+    Instant startedAt;
+    /**
+     * The command and its arguments.
+     */
+    List<String> command;
+}
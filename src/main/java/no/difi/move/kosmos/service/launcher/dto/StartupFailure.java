@@ -0,0 +1,21 @@
+package no.difi.move.kosmos.service.launcher.dto;
+
+import lombok.Value;
+
+import java.io.Serializable;
+
+/**
+ * Why a launch was given up before the timeout: the fatal signature recognized in the startup output,
+ * and the line it was recognized in.
+ */
+@Value
+public class StartupFailure implements Serializable {
+
+    String signature;
+    String line;
+
+    @Override
+    public String toString() {
+        return signature + ": " + line;
+    }
+}
@@ -0,0 +1,80 @@
+package no.difi.move.kosmos.action.application;
+
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import no.difi.move.kosmos.service.launcher.LauncherService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ClassDataSharingActionTest {
+
+    @InjectMocks
+    private ClassDataSharingAction target;
+
+    @Mock
+    private KosmosProperties propertiesMock;
+    @Mock
+    private LauncherService launcherServiceMock;
+
+    private final IntegrasjonspunktProperties integrasjonspunktProperties = new IntegrasjonspunktProperties();
+    private final File jarFile = new File("/tmp/root/integrasjonspunkt-2.2.0.jar");
+    private Application application;
+
+    @Before
+    public void setUp() {
+        given(propertiesMock.getIntegrasjonspunkt()).willReturn(integrasjonspunktProperties);
+        integrasjonspunktProperties.getClassDataSharing().setEnabled(true);
+        application = new Application()
+                .setLatest(new ApplicationMetadata().setVersion("2.2.0").setFile(jarFile))
+                .setMarkedForValidation(true);
+    }
+
+    @Test
+    public void apply_newDistribution_shouldCreateArchive() {
+        given(launcherServiceMock.createClassDataArchive(anyString())).willReturn(true);
+
+        assertThat(target.apply(application)).isSameAs(application);
+
+        verify(launcherServiceMock).createClassDataArchive(jarFile.getAbsolutePath());
+    }
+
+    @Test
+    public void apply_disabled_shouldNotCreateArchive() {
+        integrasjonspunktProperties.getClassDataSharing().setEnabled(false);
+
+        assertThat(target.apply(application)).isSameAs(application);
+
+        verifyZeroInteractions(launcherServiceMock);
+    }
+
+    @Test
+    public void apply_noNewDistribution_shouldNotCreateArchive() {
+        application.setMarkedForValidation(false);
+
+        assertThat(target.apply(application)).isSameAs(application);
+
+        verifyZeroInteractions(launcherServiceMock);
+    }
+
+    @Test
+    public void apply_trainingFails_shouldContinueUpgrade() {
+        given(launcherServiceMock.createClassDataArchive(anyString())).willThrow(new IllegalStateException("failed"));
+
+        assertThat(target.apply(application)).isSameAs(application);
+    }
+}
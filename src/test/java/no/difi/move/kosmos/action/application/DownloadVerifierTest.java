@@ -0,0 +1,66 @@
+package no.difi.move.kosmos.action.application;
+
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import no.difi.move.kosmos.service.codesigner.SignedDataVerifier;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DownloadVerifierTest {
+
+    @Mock
+    private SignedDataVerifier signedDataVerifierMock;
+
+    private DownloadVerifier target;
+
+    @Before
+    public void before() throws Exception {
+        target = new DownloadVerifier(signedDataVerifierMock);
+    }
+
+    @Test
+    public void applyTo_ChunkedUpdates_ShouldMatchDigestOfWholeContent() throws Exception {
+        given(signedDataVerifierMock.verify()).willReturn(true);
+        target.update(bytes("jar"));
+        target.update(bytes("content"));
+
+        ApplicationMetadata metadata = new ApplicationMetadata();
+        target.applyTo(metadata);
+
+        assertThat(metadata.getSha1()).isEqualTo(MessageDigest.getInstance("SHA-1").digest("jarcontent".getBytes(StandardCharsets.UTF_8)));
+        assertThat(metadata.getMd5()).isEqualTo(MessageDigest.getInstance("MD5").digest("jarcontent".getBytes(StandardCharsets.UTF_8)));
+        assertThat(metadata.getSignatureVerified()).isTrue();
+        verify(signedDataVerifierMock, times(2)).update(any());
+    }
+
+    @Test
+    public void applyTo_AfterReset_ShouldOnlyCoverNewContent() throws Exception {
+        target.update(bytes("garbage"));
+        target.reset();
+        target.update(bytes("jarcontent"));
+
+        ApplicationMetadata metadata = new ApplicationMetadata();
+        target.applyTo(metadata);
+
+        assertThat(metadata.getSha1()).isEqualTo(MessageDigest.getInstance("SHA-1").digest("jarcontent".getBytes(StandardCharsets.UTF_8)));
+        assertThat(metadata.getSignatureVerified()).isFalse();
+        verify(signedDataVerifierMock).reset();
+    }
+
+    private static ByteBuffer bytes(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
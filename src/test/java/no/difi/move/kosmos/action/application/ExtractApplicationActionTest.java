@@ -0,0 +1,71 @@
+package no.difi.move.kosmos.action.application;
+
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import no.difi.move.kosmos.service.launcher.ExplodedLayout;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExtractApplicationActionTest {
+
+    @InjectMocks
+    private ExtractApplicationAction target;
+
+    @Mock
+    private KosmosProperties propertiesMock;
+    @Mock
+    private ExplodedLayout explodedLayoutMock;
+
+    private final IntegrasjonspunktProperties integrasjonspunktProperties = new IntegrasjonspunktProperties();
+    private final File jarFile = new File("/tmp/root/integrasjonspunkt-2.2.0.jar");
+    private Application application;
+
+    @Before
+    public void setUp() {
+        given(propertiesMock.getIntegrasjonspunkt()).willReturn(integrasjonspunktProperties);
+        integrasjonspunktProperties.setExploded(true);
+        application = new Application()
+                .setLatest(new ApplicationMetadata().setVersion("2.2.0").setFile(jarFile));
+    }
+
+    @Test
+    public void apply_shouldExtractLatestAndCleanUp() {
+        given(explodedLayoutMock.extract(anyString())).willReturn(true);
+
+        assertThat(target.apply(application)).isSameAs(application);
+
+        verify(explodedLayoutMock).extract(jarFile.getAbsolutePath());
+        verify(explodedLayoutMock).deleteOrphaned();
+    }
+
+    @Test
+    public void apply_disabled_shouldNotExtract() {
+        integrasjonspunktProperties.setExploded(false);
+
+        assertThat(target.apply(application)).isSameAs(application);
+
+        verifyZeroInteractions(explodedLayoutMock);
+    }
+
+    @Test
+    public void apply_extractFails_shouldContinueUpgrade() {
+        given(explodedLayoutMock.extract(anyString())).willThrow(new IllegalStateException("failed"));
+
+        assertThat(target.apply(application)).isSameAs(application);
+    }
+}
@@ -4,10 +4,14 @@ import lombok.SneakyThrows;
 import no.difi.move.kosmos.action.KosmosActionException;
 import no.difi.move.kosmos.config.BlocklistProperties;
 import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.ArtifactBundle;
 import no.difi.move.kosmos.domain.application.Application;
 import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import no.difi.move.kosmos.repo.DownloadListener;
 import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
 import no.difi.move.kosmos.repo.MavenCentralRepo;
+import no.difi.move.kosmos.service.codesigner.GpgService;
+import no.difi.move.kosmos.service.codesigner.SignedDataVerifier;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,9 +22,12 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.client.HttpClientErrorException;
+import reactor.core.publisher.Mono;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
@@ -29,7 +36,6 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.powermock.api.mockito.PowerMockito.doThrow;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 
 @RunWith(PowerMockRunner.class)
@@ -51,13 +57,16 @@ public class PrepareApplicationActionTest {
     @Mock
     private File fileMock;
     @Mock
-    private File blockListedFileMock;
-    @Mock
     private Path pathMock;
     @Mock
     private BlocklistProperties blocklistPropertiesMock;
+    @Mock
+    private GpgService gpgServiceMock;
+    @Mock
+    private SignedDataVerifier signedDataVerifierMock;
 
     private Application application;
+    private ArtifactBundle bundle;
 
     @Before
     @SneakyThrows
@@ -72,6 +81,16 @@ public class PrepareApplicationActionTest {
                 .thenReturn(fileMock);
         given(fileMock.toPath()).willReturn(pathMock);
         given(kosmosDirectoryRepoMock.getFile(anyString(), anyString())).willReturn(fileMock);
+        bundle = ArtifactBundle.builder()
+                .version(NEW_APPLICATION_VERSION)
+                .signature("signature")
+                .build();
+        given(mavenCentralRepoMock.fetchArtifactBundle(anyString(), any(), any())).willAnswer(invocation -> {
+            Function<ArtifactBundle, DownloadListener> listenerFactory = invocation.getArgument(2);
+            listenerFactory.apply(bundle);
+            return Mono.just(bundle);
+        });
+        given(gpgServiceMock.createVerifier("signature")).willReturn(signedDataVerifierMock);
     }
 
     @Test(expected = NullPointerException.class)
@@ -89,18 +108,41 @@ public class PrepareApplicationActionTest {
         assertThat(result).isSameAs(application);
         File resultFile = application.getLatest().getFile();
         assertThat(resultFile).isSameAs(fileMock);
-        verify(mavenCentralRepoMock).downloadJAR(eq(NEW_APPLICATION_VERSION), same(pathMock));
+        verify(mavenCentralRepoMock).fetchArtifactBundle(eq(NEW_APPLICATION_VERSION), same(pathMock), any());
+    }
+
+    @Test
+    public void apply_NewVersionDownloaded_ShouldRecordVerification() {
+        given(fileMock.exists()).willReturn(false);
+        given(signedDataVerifierMock.verify()).willReturn(true);
+
+        target.apply(application);
+
+        assertThat(application.getLatest().getSha1()).isNotNull();
+        assertThat(application.getLatest().getMd5()).isNotNull();
+        assertThat(application.getLatest().getSignatureVerified()).isTrue();
+        assertThat(application.getLatest().getArtifactBundle()).isSameAs(bundle);
+    }
+
+    @Test
+    public void apply_NewVersionDownloaded_ShouldRecordDownloadSizeAndDuration() {
+        given(fileMock.exists()).willReturn(false);
+        given(fileMock.length()).willReturn(1024L);
+
+        target.apply(application);
+
+        assertThat(application.getLatest().getDownloadSize()).isEqualTo(1024L);
+        assertThat(application.getLatest().getDownloadDuration()).isNotNull();
     }
 
     @Test
     public void apply_NewVersionIsBlockListed_ShouldThrow() {
         given(kosmosDirectoryRepoMock.isBlockListed(any())).willReturn(true);
-        given(kosmosDirectoryRepoMock.getBlocklistPath(any())).willReturn(blockListedFileMock);
-        given(blockListedFileMock.getAbsolutePath()).willReturn("/tmp/test.jar.blocklisted");
+        given(kosmosDirectoryRepoMock.getBlocklistedUntil(any())).willReturn(LocalDateTime.of(2021, 3, 1, 12, 0));
 
         assertThatThrownBy(() -> target.apply(application))
                 .isInstanceOf(KosmosActionException.class)
-                .hasMessage("The latest version is block listed! Remove /tmp/test.jar.blocklisted to allow version.")
+                .hasMessage("The latest version is block listed until 2021-03-01T12:00!")
                 .hasNoCause();
     }
 
@@ -108,8 +150,6 @@ public class PrepareApplicationActionTest {
     public void apply_NewVersionIsBlockListedAndBlocklistIsDisabled_ShouldNotThrow() {
         given(blocklistPropertiesMock.isEnabled()).willReturn(false);
         given(kosmosDirectoryRepoMock.isBlockListed(any())).willReturn(true);
-        given(kosmosDirectoryRepoMock.getBlocklistPath(any())).willReturn(blockListedFileMock);
-        given(blockListedFileMock.getAbsolutePath()).willReturn("/tmp/test.jar.blocklisted");
 
         assertThatCode(() -> target.apply(application)).doesNotThrowAnyException();
     }
@@ -117,24 +157,44 @@ public class PrepareApplicationActionTest {
     @Test
     public void apply_DownLoadFails_ShouldThrow() {
         HttpClientErrorException exception = new HttpClientErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "Download failed!");
-        doThrow(exception).when(mavenCentralRepoMock).downloadJAR(any(), any());
+        given(mavenCentralRepoMock.fetchArtifactBundle(anyString(), any(), any())).willReturn(Mono.error(exception));
 
         assertThatThrownBy(() -> target.apply(application))
                 .isInstanceOf(KosmosActionException.class)
                 .hasMessage("Error occurred when downloading latest version")
                 .hasCause(exception);
 
-        verify(mavenCentralRepoMock).downloadJAR(eq(NEW_APPLICATION_VERSION), same(pathMock));
+        verify(mavenCentralRepoMock).fetchArtifactBundle(eq(NEW_APPLICATION_VERSION), same(pathMock), any());
+    }
+
+    @Test
+    public void apply_DownloadedVersionNotVerified_ShouldDownloadAgain() {
+        given(fileMock.exists()).willReturn(true);
+
+        assertThat(target.apply(application).isMarkedForValidation()).isTrue();
+
+        verify(mavenCentralRepoMock).fetchArtifactBundle(eq(NEW_APPLICATION_VERSION), same(pathMock), any());
+    }
+
+    @Test
+    public void apply_DownloadedVersionIsAllowlisted_ShouldNotDownload() {
+        given(fileMock.exists()).willReturn(true);
+        given(kosmosDirectoryRepoMock.getAllowlistVersion()).willReturn(NEW_APPLICATION_VERSION);
+
+        assertThat(target.apply(application).isMarkedForValidation()).isFalse();
+
+        verify(mavenCentralRepoMock, never()).fetchArtifactBundle(anyString(), any(), any());
     }
 
     @Test
     public void apply_NoNewVersionIsDownloaded_ShouldNotDownload() {
         given(fileMock.exists()).willReturn(true);
+        given(kosmosDirectoryRepoMock.isVerified(fileMock)).willReturn(true);
         assertThat(target.apply(application)).isSameAs(application);
 
         File resultFile = application.getLatest().getFile();
 
         assertThat(resultFile).isSameAs(fileMock);
-        verify(mavenCentralRepoMock, never()).downloadJAR(anyString(), any());
+        verify(mavenCentralRepoMock, never()).fetchArtifactBundle(anyString(), any(), any());
     }
 }
@@ -1,9 +1,12 @@
 package no.difi.move.kosmos.action.application;
 
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
 import no.difi.move.kosmos.domain.HealthStatus;
 import no.difi.move.kosmos.domain.application.Application;
 import no.difi.move.kosmos.domain.application.ApplicationMetadata;
 import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.LauncherService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -24,13 +27,20 @@ public class ShutdownActionTest {
     @InjectMocks
     private ShutdownAction target;
 
+    @Mock
+    private KosmosProperties propertiesMock;
     @Mock
     private ActuatorService actuatorServiceMock;
     @Mock
+    private LauncherService launcherServiceMock;
+    @Mock
     private Application applicationMock;
 
+    private final IntegrasjonspunktProperties integrasjonspunktProperties = new IntegrasjonspunktProperties();
+
     @Before
     public void setUp() {
+        given(propertiesMock.getIntegrasjonspunkt()).willReturn(integrasjonspunktProperties);
         given(applicationMock.getCurrent())
                 .willReturn(new ApplicationMetadata().setVersion("old"));
     }
@@ -44,7 +54,7 @@ public class ShutdownActionTest {
     public void apply_currentVersionIsLatest_shouldNotShutdown() {
         given(applicationMock.isSameVersion()).willReturn(true);
         assertThat(target.apply(applicationMock)).isSameAs(applicationMock);
-        verify(actuatorServiceMock, never()).shutdown();
+        verify(launcherServiceMock, never()).shutdownIntegrasjonspunkt();
     }
 
     @Test
@@ -53,7 +63,17 @@ public class ShutdownActionTest {
         given(actuatorServiceMock.getStatus()).willReturn(HealthStatus.UP);
 
         assertThat(target.apply(applicationMock)).isSameAs(applicationMock);
-        verify(actuatorServiceMock).shutdown();
+        verify(launcherServiceMock).shutdownIntegrasjonspunkt();
+    }
+
+    @Test
+    public void apply_blueGreenEnabled_shouldLeaveShutdownToLauncher() {
+        integrasjonspunktProperties.getBlueGreen().setEnabled(true);
+        given(applicationMock.isSameVersion()).willReturn(false);
+        given(actuatorServiceMock.getStatus()).willReturn(HealthStatus.UP);
+
+        assertThat(target.apply(applicationMock)).isSameAs(applicationMock);
+        verify(launcherServiceMock, never()).shutdownIntegrasjonspunkt();
     }
 
     @Test
@@ -61,6 +81,6 @@ public class ShutdownActionTest {
         given(applicationMock.isSameVersion()).willReturn(false);
         given(actuatorServiceMock.getStatus()).willReturn(HealthStatus.DOWN);
         assertThat(target.apply(applicationMock)).isSameAs(applicationMock);
-        verify(actuatorServiceMock, never()).shutdown();
+        verify(launcherServiceMock, never()).shutdownIntegrasjonspunkt();
     }
 }
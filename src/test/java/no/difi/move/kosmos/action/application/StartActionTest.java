@@ -1,6 +1,7 @@
 package no.difi.move.kosmos.action.application;
 
 import no.difi.move.kosmos.config.BlocklistProperties;
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
 import no.difi.move.kosmos.config.KosmosProperties;
 import no.difi.move.kosmos.domain.HealthStatus;
 import no.difi.move.kosmos.domain.application.Application;
@@ -10,6 +11,7 @@ import no.difi.move.kosmos.service.actuator.ActuatorService;
 import no.difi.move.kosmos.service.launcher.LauncherService;
 import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
 import no.difi.move.kosmos.service.launcher.dto.LaunchStatus;
+import no.difi.move.kosmos.service.launcher.dto.StartupFailure;
 import no.difi.move.kosmos.service.mail.MailService;
 import org.junit.Before;
 import org.junit.Test;
@@ -123,6 +125,25 @@ public class StartActionTest {
         verify(kosmosDirectoryRepoMock).blockList(fileMock);
     }
 
+    @Test
+    public void apply_whenStartFailsOnFatalLine_theMailShouldNameTheFailure() {
+        given(launcherServiceMock.launchIntegrasjonspunkt(any())).willReturn(
+                new LaunchResult()
+                        .setStatus(LaunchStatus.FAILED)
+                        .setStartupLog("theStartupLog")
+                        .setFailure(new StartupFailure("port-in-use", "Port 9093 was already in use"))
+        );
+
+        given(applicationMock.getCurrent())
+                .willReturn(new ApplicationMetadata().setVersion("latest"));
+        given(applicationMock.isSameVersion()).willReturn(true);
+        given(actuatorServiceMock.getStatus()).willReturn(HealthStatus.DOWN);
+        given(fileMock.getAbsolutePath()).willReturn("the path");
+        assertThat(target.apply(applicationMock)).isSameAs(applicationMock);
+        verify(mailService).sendMail("Upgrade FAILED test.jar",
+                String.format("Startup failed on port-in-use: Port 9093 was already in use%n%ntheStartupLog"));
+    }
+
     @Test
     public void apply_StartFailsAndBlacklistIsDisabled_JarFileShouldNotBeBlacklisted() {
         given(launcherServiceMock.launchIntegrasjonspunkt(any())).willReturn(
@@ -157,6 +178,7 @@ public class StartActionTest {
                 .willReturn(new ApplicationMetadata().setVersion("latest"));
         given(applicationMock.isSameVersion()).willReturn(true);
         given(actuatorServiceMock.getStatus()).willReturn(HealthStatus.DOWN, HealthStatus.UP);
+        given(propertiesMock.getIntegrasjonspunkt()).willReturn(new IntegrasjonspunktProperties());
         given(fileMock.getAbsolutePath()).willReturn("the path");
         assertThat(target.apply(applicationMock)).isSameAs(applicationMock);
         verify(launcherServiceMock).launchIntegrasjonspunkt("the path");
@@ -165,6 +187,29 @@ public class StartActionTest {
         verify(actuatorServiceMock).shutdown();
     }
 
+    @Test
+    public void apply_whenBlueGreenStartFails_theRunningApplicationShouldNotBeShutDown() {
+        given(launcherServiceMock.launchIntegrasjonspunkt(any())).willReturn(
+                new LaunchResult()
+                        .setStatus(LaunchStatus.FAILED)
+                        .setStartupLog("theStartupLog")
+        );
+
+        given(applicationMock.getCurrent())
+                .willReturn(new ApplicationMetadata().setVersion("latest"));
+        given(applicationMock.isSameVersion()).willReturn(true);
+        given(actuatorServiceMock.getStatus()).willReturn(HealthStatus.DOWN, HealthStatus.UP);
+        IntegrasjonspunktProperties integrasjonspunktProperties = new IntegrasjonspunktProperties();
+        integrasjonspunktProperties.getBlueGreen().setEnabled(true);
+        given(propertiesMock.getIntegrasjonspunkt()).willReturn(integrasjonspunktProperties);
+        given(fileMock.getAbsolutePath()).willReturn("the path");
+        assertThat(target.apply(applicationMock)).isSameAs(applicationMock);
+        verify(launcherServiceMock).launchIntegrasjonspunkt("the path");
+        verify(mailService).sendMail("Upgrade FAILED test.jar", "theStartupLog");
+        verify(kosmosDirectoryRepoMock).blockList(fileMock);
+        verify(actuatorServiceMock, never()).shutdown();
+    }
+
     @Test
     public void apply_StartFailsAndTheApplicationIsRunningAndBlacklistIsDisabled_JarShouldNotBeBlacklistedAndAShutdownIsNotTriggered() {
         given(launcherServiceMock.launchIntegrasjonspunkt(any())).willReturn(
@@ -0,0 +1,35 @@
+package no.difi.move.kosmos.config;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Binds and validates the properties of the test classpath, which replace those of the main one,
+ * so a required property missing from either file fails here rather than in the Cucumber context.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = KosmosPropertiesTest.Config.class)
+public class KosmosPropertiesTest {
+
+    @Configuration
+    @EnableConfigurationProperties(KosmosProperties.class)
+    static class Config {
+    }
+
+    @Autowired
+    private KosmosProperties properties;
+
+    @Test
+    public void contextLoads_ShouldBindRequiredProperties() {
+        assertThat(properties.getOrgnumber()).isEqualTo("910077473");
+        assertThat(properties.getMavenCentralDownloadRetries()).isEqualTo(3);
+        assertThat(properties.getIntegrasjonspunkt().getHome()).isEqualTo("/tmp/root");
+    }
+}
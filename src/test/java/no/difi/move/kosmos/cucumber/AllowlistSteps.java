@@ -2,33 +2,15 @@ package no.difi.move.deploymanager.cucumber;
 
 import cucumber.api.java.en.Given;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
-import lombok.extern.slf4j.Slf4j;
-import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.repo.VersionStateStore;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-
-@Slf4j
 @RequiredArgsConstructor
 public class AllowlistSteps {
 
-    private final KosmosProperties propertiesSpy;
+    private final VersionStateStore versionStateStore;
 
-    @SneakyThrows
     @Given("^the distribution \"([^\"]*)\" is allowlisted$")
-    public void theVersionIsAllowlisted(String version) {
-        final Path path = Paths.get(propertiesSpy.getIntegrasjonspunkt().getHome(), version + ".allowlisted");
-        if (!new File(path.toString()).createNewFile()) {
-            log.error("Allowlist file already exists");
-        }
-        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            writer.write(LocalDateTime.now().toString());
-        }
+    public void theVersionIsAllowlisted(String distribution) {
+        versionStateStore.allowlist(distribution.replaceFirst("^integrasjonspunkt-", ""));
     }
 }
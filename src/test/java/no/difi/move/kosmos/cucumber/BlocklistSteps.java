@@ -2,45 +2,26 @@ package no.difi.move.deploymanager.cucumber;
 
 import cucumber.api.java.en.Given;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
-import lombok.extern.slf4j.Slf4j;
-import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.repo.VersionStateStore;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 
-@Slf4j
 @RequiredArgsConstructor
 public class BlocklistSteps {
 
-    private final KosmosProperties propertiesSpy;
+    private final VersionStateStore versionStateStore;
 
-    @SneakyThrows
     @Given("^the distribution \"([^\"]*)\" is blocklisted$")
-    public void theVersionIsBlocklisted(String version) {
-        final Path path = Paths.get(propertiesSpy.getIntegrasjonspunkt().getHome(), version + ".blocklisted");
-        if (!new File(path.toString()).createNewFile()) {
-            log.error("blocklist file already exists");
-        }
-        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            writer.write(LocalDateTime.now().plusHours(1).toString());
-        }
+    public void theVersionIsBlocklisted(String distribution) {
+        versionStateStore.blocklist(getVersion(distribution), LocalDateTime.now().plusHours(1));
     }
 
-    @SneakyThrows
     @Given("^the distribution \"([^\"]*)\" has an expired blocklist$")
-    public void theVersionHasExpiredBlocklist(String version) {
-        final Path path = Paths.get(propertiesSpy.getIntegrasjonspunkt().getHome(), version + ".blocklisted");
-        if (!new File(path.toString()).createNewFile()) {
-            log.error("blocklist file already exists");
-        }
-        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            writer.write(LocalDateTime.now().minusHours(1).toString());
-        }
+    public void theVersionHasExpiredBlocklist(String distribution) {
+        versionStateStore.blocklist(getVersion(distribution), LocalDateTime.now().minusHours(1));
+    }
+
+    private static String getVersion(String distribution) {
+        return distribution.replaceFirst("^integrasjonspunkt-", "");
     }
 }
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.repo.VersionStateStore;
 
 import java.io.File;
 import java.nio.file.Files;
@@ -14,14 +15,15 @@ import java.nio.file.Files;
 public class JarSteps {
 
     private final KosmosProperties propertiesSpy;
+    private final VersionStateStore versionStateStore;
 
     @And("^the \"([^\"]*)\" exists as a copy of \"([^\"]*)\"$")
     @SneakyThrows
     public void theExists(String path, String copyOf) {
-        Files.copy(
-                getClass().getResourceAsStream(copyOf),
-                new File(propertiesSpy.getIntegrasjonspunkt().getHome(), path).toPath()
-        );
+        File jar = new File(propertiesSpy.getIntegrasjonspunkt().getHome(), path);
+        Files.copy(getClass().getResourceAsStream(copyOf), jar.toPath());
+        // A distribution already in place was validated when it was downloaded
+        versionStateStore.markVerified(path.replaceFirst("^integrasjonspunkt-", "").replaceFirst("\\.jar$", ""), "0");
     }
 
     @And("^the \"([^\"]*)\" exists$")
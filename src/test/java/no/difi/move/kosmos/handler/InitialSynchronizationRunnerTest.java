@@ -0,0 +1,88 @@
+package no.difi.move.kosmos.handler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.difi.move.kosmos.action.application.*;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.service.launcher.ProcessAdopter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InitialSynchronizationRunnerTest {
+
+    @Mock
+    private ProcessAdopter processAdopter;
+    @Mock
+    private RunRecovery runRecovery;
+    @Mock
+    private GetCurrentVersionAction currentVersionAction;
+    @Mock
+    private LatestVersionAction latestVersionAction;
+    @Mock
+    private VerifyVersionComplianceAction verifyVersionComplianceAction;
+    @Mock
+    private PrepareApplicationAction prepareApplicationAction;
+    @Mock
+    private ValidateAction validateAction;
+    @Mock
+    private ExtractApplicationAction extractApplicationAction;
+    @Mock
+    private ClassDataSharingAction classDataSharingAction;
+    @Mock
+    private ShutdownAction shutdownAction;
+    @Mock
+    private StartAction startAction;
+    @Mock
+    private RollbackAction rollbackAction;
+    @Mock
+    private RunLog runLog;
+
+    private SynchronizationHandler synchronizationHandler;
+    private InitialSynchronizationRunner target;
+
+    @Before
+    public void before() {
+        synchronizationHandler = new SynchronizationHandler(currentVersionAction, latestVersionAction,
+                verifyVersionComplianceAction, prepareApplicationAction, validateAction, extractApplicationAction,
+                classDataSharingAction, shutdownAction, startAction, rollbackAction,
+                new SynchronizationMetrics(new SimpleMeterRegistry()), runLog);
+        lenient().when(runLog.track(anyString(), any())).then(invocation -> invocation.getArgument(1));
+        target = new InitialSynchronizationRunner(processAdopter, runRecovery, synchronizationHandler);
+    }
+
+    @Test
+    public void onApplicationReady_SynchronizationDuringRecovery_ShouldNotOverlap() throws Exception {
+        CountDownLatch recovering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            recovering.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).given(runRecovery).recover();
+        CompletableFuture<Void> startup = CompletableFuture.runAsync(target::onApplicationReady);
+        assertThat(recovering.await(5, TimeUnit.SECONDS)).isTrue();
+
+        synchronizationHandler.run();
+
+        verify(currentVersionAction, never()).apply(any(Application.class));
+        release.countDown();
+        startup.get(5, TimeUnit.SECONDS);
+        // Only the initial synchronization, after recovery
+        verify(currentVersionAction).apply(any(Application.class));
+    }
+}
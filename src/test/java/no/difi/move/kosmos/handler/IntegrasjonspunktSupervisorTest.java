@@ -0,0 +1,183 @@
+package no.difi.move.kosmos.handler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.config.SupervisorProperties;
+import no.difi.move.kosmos.domain.HealthStatus;
+import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
+import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.IntegrasjonspunktLaunchedEvent;
+import no.difi.move.kosmos.service.launcher.LauncherService;
+import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
+import no.difi.move.kosmos.service.launcher.dto.LaunchStatus;
+import no.difi.move.kosmos.service.mail.MailService;
+import no.difi.move.kosmos.util.KosmosUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.zeroturnaround.exec.ProcessResult;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IntegrasjonspunktSupervisorTest {
+
+    private static final String JAR_PATH = "/home/integrasjonspunkt-2.1.0.jar";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private SynchronizationHandler synchronizationHandler;
+    @Mock
+    private ActuatorService actuatorService;
+    @Mock
+    private LauncherService launcherService;
+    @Mock
+    private KosmosDirectoryRepo kosmosDirectoryRepo;
+    @Mock
+    private MailService mailService;
+
+    private MeterRegistry meterRegistry;
+    private IntegrasjonspunktSupervisor target;
+
+    @Before
+    public void before() {
+        KosmosProperties properties = new KosmosProperties()
+                .setSupervisor(new SupervisorProperties()
+                        .setRestartInitialBackoffInMs(10)
+                        .setRestartMaxBackoffInMs(50)
+                        .setStableAfterInMs(60000));
+        meterRegistry = new SimpleMeterRegistry();
+        target = new IntegrasjonspunktSupervisor(properties, synchronizationHandler, actuatorService, launcherService,
+                kosmosDirectoryRepo, mailService, meterRegistry,
+                Executors.defaultThreadFactory(), Executors.defaultThreadFactory());
+        lenient().when(synchronizationHandler.runExclusively(any())).then(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        });
+        lenient().when(actuatorService.getStatus()).thenReturn(HealthStatus.DOWN);
+    }
+
+    @After
+    public void after() {
+        target.stop();
+    }
+
+    @Test
+    public void exit_ShouldRestart() {
+        given(launcherService.launchIntegrasjonspunkt(JAR_PATH)).willReturn(launchResult(LaunchStatus.SUCCESS));
+        CompletableFuture<ProcessResult> process = launch(JAR_PATH);
+
+        process.complete(new ProcessResult(1, null));
+
+        verify(launcherService, timeout(2000)).launchIntegrasjonspunkt(JAR_PATH);
+        verify(mailService, timeout(2000)).sendMail("Restart SUCCESS integrasjonspunkt-2.1.0.jar", "startup");
+        assertThat(target.getRestartCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void exit_AllowlistedVersionPresent_ShouldRestartAllowlistedVersion() throws Exception {
+        File allowlisted = temporaryFolder.newFile("integrasjonspunkt-2.0.0.jar");
+        given(kosmosDirectoryRepo.getAllowlistVersion()).willReturn("2.0.0");
+        given(kosmosDirectoryRepo.getFile("2.0.0", KosmosUtils.DOWNLOAD_JAR_FILE_NAME)).willReturn(allowlisted);
+        given(launcherService.launchIntegrasjonspunkt(anyString())).willReturn(launchResult(LaunchStatus.SUCCESS));
+
+        launch(JAR_PATH).complete(new ProcessResult(1, null));
+
+        verify(launcherService, timeout(2000)).launchIntegrasjonspunkt(allowlisted.getAbsolutePath());
+    }
+
+    @Test
+    public void exit_ReplacedProcess_ShouldNotRestart() {
+        CompletableFuture<ProcessResult> previous = launch(JAR_PATH);
+        launch("/home/integrasjonspunkt-2.2.0.jar");
+
+        previous.complete(new ProcessResult(0, null));
+
+        verify(launcherService, after(200).never()).launchIntegrasjonspunkt(anyString());
+    }
+
+    @Test
+    public void restart_Failed_ShouldRetry() {
+        given(launcherService.launchIntegrasjonspunkt(JAR_PATH))
+                .willReturn(launchResult(LaunchStatus.FAILED))
+                .willReturn(launchResult(LaunchStatus.SUCCESS));
+
+        launch(JAR_PATH).complete(new ProcessResult(1, null));
+
+        verify(launcherService, timeout(2000).times(2)).launchIntegrasjonspunkt(JAR_PATH);
+        verify(mailService, timeout(2000)).sendMail("Restart FAILED integrasjonspunkt-2.1.0.jar", "startup");
+        verify(mailService, timeout(2000)).sendMail("Restart SUCCESS integrasjonspunkt-2.1.0.jar", "startup");
+    }
+
+    @Test
+    public void restart_SynchronizationInProgress_ShouldWait() {
+        given(synchronizationHandler.runExclusively(any()))
+                .willReturn(false)
+                .willAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(0).run();
+                    return true;
+                });
+        given(launcherService.launchIntegrasjonspunkt(JAR_PATH)).willReturn(launchResult(LaunchStatus.SUCCESS));
+
+        launch(JAR_PATH).complete(new ProcessResult(1, null));
+
+        verify(launcherService, timeout(2000)).launchIntegrasjonspunkt(JAR_PATH);
+        verify(synchronizationHandler, times(2)).runExclusively(any());
+    }
+
+    @Test
+    public void restart_IntegrasjonspunktAlreadyUp_ShouldNotLaunch() {
+        given(actuatorService.getStatus()).willReturn(HealthStatus.UP);
+
+        launch(JAR_PATH).complete(new ProcessResult(1, null));
+
+        verify(actuatorService, timeout(2000)).getStatus();
+        verify(launcherService, after(200).never()).launchIntegrasjonspunkt(anyString());
+    }
+
+    @Test
+    public void getUptime_ShouldFollowProcess() {
+        CompletableFuture<ProcessResult> process = launch(JAR_PATH);
+        assertThat(target.getUptime()).isPositive();
+
+        target.stop();
+        process.complete(new ProcessResult(0, null));
+
+        assertThat(target.getUptime()).isZero();
+        assertThat(meterRegistry.get(IntegrasjonspunktSupervisor.UPTIME_GAUGE).gauge().value()).isZero();
+        verify(launcherService, never()).launchIntegrasjonspunkt(anyString());
+    }
+
+    private CompletableFuture<ProcessResult> launch(String jarPath) {
+        CompletableFuture<ProcessResult> process = new CompletableFuture<>();
+        target.onLaunched(new IntegrasjonspunktLaunchedEvent(jarPath, process));
+        return process;
+    }
+
+    private static LaunchResult launchResult(LaunchStatus status) {
+        return new LaunchResult()
+                .setStatus(status)
+                .setStartupLog("startup");
+    }
+}
@@ -0,0 +1,115 @@
+package no.difi.move.kosmos.handler;
+
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RunLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private KosmosProperties properties;
+    private RunLog target;
+    private Application application;
+
+    @Before
+    public void setUp() {
+        properties = new KosmosProperties()
+                .setIntegrasjonspunkt(new IntegrasjonspunktProperties()
+                        .setHome(temporaryFolder.getRoot().getAbsolutePath()));
+        target = new RunLog(properties);
+        application = new Application()
+                .setCurrent(new ApplicationMetadata()
+                        .setVersion("2.1.0")
+                        .setFile(new File(temporaryFolder.getRoot(), "integrasjonspunkt 2.1.0.jar")));
+    }
+
+    @Test
+    public void getInterruptedRun_NoLog_ShouldBeEmpty() {
+        assertThat(target.getInterruptedRun()).isEmpty();
+    }
+
+    @Test
+    public void getInterruptedRun_RunEnded_ShouldBeEmpty() {
+        target.begin();
+        target.track("shutdown", Function.identity()).apply(application);
+        target.end();
+
+        assertThat(target.getInterruptedRun()).isEmpty();
+    }
+
+    @Test
+    public void getInterruptedRun_RunInterrupted_ShouldReturnLastStage() {
+        target.begin();
+        target.track("validate", Function.identity()).apply(application);
+        Function<Application, Application> shutdown = target.track("shutdown", app -> {
+            throw new IllegalStateException("Kosmos stopped");
+        });
+        assertThatThrownBy(() -> shutdown.apply(application)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(target.getInterruptedRun())
+                .hasValueSatisfying(run -> {
+                    assertThat(run.getStage()).isEqualTo("shutdown");
+                    assertThat(run.getCurrentJar()).isEqualTo(application.getCurrent().getFile().getAbsolutePath());
+                });
+    }
+
+    @Test
+    public void track_ShouldRecordStageBeforeAction() {
+        target.begin();
+        target.track("validate", Function.identity()).apply(application);
+        Function<Application, Application> shutdown = target.track("shutdown", app -> {
+            // What a restarted Kosmos would find if it stopped here
+            RunLog.InterruptedRun run = new RunLog(properties).getInterruptedRun().orElse(null);
+            assertThat(run).isNotNull();
+            assertThat(run.getStage()).isEqualTo("shutdown");
+            assertThat(run.getCurrentJar()).isEqualTo(application.getCurrent().getFile().getAbsolutePath());
+            return app;
+        });
+
+        shutdown.apply(application);
+    }
+
+    @Test
+    public void getInterruptedRun_NoCurrentVersion_ShouldHaveNoJar() {
+        target.begin();
+        target.track("current-version", Function.identity()).apply(new Application());
+
+        assertThat(target.getInterruptedRun())
+                .hasValueSatisfying(run -> {
+                    assertThat(run.getStage()).isEqualTo("current-version");
+                    assertThat(run.getCurrentJar()).isNull();
+                });
+    }
+
+    @Test
+    public void begin_ShouldDiscardPreviousRun() {
+        target.begin();
+        target.track("start", Function.identity()).apply(application);
+        target.begin();
+
+        assertThat(target.getInterruptedRun())
+                .hasValueSatisfying(run -> assertThat(run.getStage()).isEqualTo("BEGIN"));
+    }
+
+    @Test
+    public void clear_ShouldRemoveLog() {
+        target.begin();
+        target.clear();
+
+        assertThat(target.getInterruptedRun()).isEmpty();
+        assertThat(new File(temporaryFolder.getRoot(), RunLog.FILE_NAME)).doesNotExist();
+    }
+}
@@ -0,0 +1,96 @@
+package no.difi.move.kosmos.handler;
+
+import no.difi.move.kosmos.domain.HealthStatus;
+import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.LauncherService;
+import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
+import no.difi.move.kosmos.service.launcher.dto.LaunchStatus;
+import no.difi.move.kosmos.service.mail.MailService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RunRecoveryTest {
+
+    private static final String JAR_PATH = "/home/integrasjonspunkt-2.1.0.jar";
+
+    @Mock
+    private RunLog runLog;
+    @Mock
+    private ActuatorService actuatorService;
+    @Mock
+    private LauncherService launcherService;
+    @Mock
+    private MailService mailService;
+
+    @InjectMocks
+    private RunRecovery target;
+
+    @Test
+    public void recover_NoInterruptedRun_ShouldDoNothing() {
+        given(runLog.getInterruptedRun()).willReturn(Optional.empty());
+
+        target.recover();
+
+        verifyZeroInteractions(actuatorService, launcherService, mailService);
+        verify(runLog, never()).clear();
+    }
+
+    @Test
+    public void recover_InterruptedAfterShutdown_ShouldRestartPreviousVersion() {
+        given(runLog.getInterruptedRun()).willReturn(Optional.of(new RunLog.InterruptedRun("shutdown", JAR_PATH)));
+        given(actuatorService.getStatus()).willReturn(HealthStatus.DOWN);
+        given(launcherService.launchIntegrasjonspunkt(JAR_PATH)).willReturn(new LaunchResult()
+                .setJarPath(JAR_PATH)
+                .setStatus(LaunchStatus.SUCCESS)
+                .setStartupLog("started"));
+
+        target.recover();
+
+        verify(launcherService).launchIntegrasjonspunkt(JAR_PATH);
+        verify(mailService).sendMail("Recovery SUCCESS integrasjonspunkt-2.1.0.jar", "started");
+        verify(runLog).clear();
+    }
+
+    @Test
+    public void recover_InterruptedAfterShutdownButRunning_ShouldNotLaunch() {
+        given(runLog.getInterruptedRun()).willReturn(Optional.of(new RunLog.InterruptedRun("start", JAR_PATH)));
+        given(actuatorService.getStatus()).willReturn(HealthStatus.UP);
+
+        target.recover();
+
+        verifyZeroInteractions(launcherService, mailService);
+        verify(runLog).clear();
+    }
+
+    @Test
+    public void recover_InterruptedBeforeShutdown_ShouldOnlyClear() {
+        given(runLog.getInterruptedRun()).willReturn(Optional.of(new RunLog.InterruptedRun("prepare", JAR_PATH)));
+
+        target.recover();
+
+        verifyZeroInteractions(actuatorService, launcherService, mailService);
+        verify(runLog).clear();
+    }
+
+    @Test
+    public void recover_NoPreviousVersion_ShouldOnlyClear() {
+        given(runLog.getInterruptedRun()).willReturn(Optional.of(new RunLog.InterruptedRun("shutdown", null)));
+
+        target.recover();
+
+        verify(launcherService, never()).launchIntegrasjonspunkt(anyString());
+        verify(runLog).clear();
+    }
+}
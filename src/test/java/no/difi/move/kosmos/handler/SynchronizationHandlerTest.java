@@ -0,0 +1,121 @@
+package no.difi.move.kosmos.handler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.difi.move.kosmos.action.application.*;
+import no.difi.move.kosmos.domain.application.Application;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SynchronizationHandlerTest {
+
+    @Mock
+    private GetCurrentVersionAction currentVersionAction;
+    @Mock
+    private LatestVersionAction latestVersionAction;
+    @Mock
+    private VerifyVersionComplianceAction verifyVersionComplianceAction;
+    @Mock
+    private PrepareApplicationAction prepareApplicationAction;
+    @Mock
+    private ValidateAction validateAction;
+    @Mock
+    private ExtractApplicationAction extractApplicationAction;
+    @Mock
+    private ClassDataSharingAction classDataSharingAction;
+    @Mock
+    private ShutdownAction shutdownAction;
+    @Mock
+    private StartAction startAction;
+    @Mock
+    private RollbackAction rollbackAction;
+    @Mock
+    private RunLog runLog;
+
+    private SynchronizationHandler target;
+
+    @Before
+    public void before() {
+        target = new SynchronizationHandler(currentVersionAction, latestVersionAction, verifyVersionComplianceAction,
+                prepareApplicationAction, validateAction, extractApplicationAction, classDataSharingAction,
+                shutdownAction, startAction, rollbackAction,
+                new SynchronizationMetrics(new SimpleMeterRegistry()), runLog);
+        lenient().when(runLog.track(anyString(), any())).then(invocation -> invocation.getArgument(1));
+        Stream.of(latestVersionAction, verifyVersionComplianceAction, prepareApplicationAction, validateAction,
+                extractApplicationAction, classDataSharingAction, shutdownAction, startAction, rollbackAction)
+                .forEach(action -> lenient().when(action.apply(any(Application.class))).then(returnsFirstArg()));
+    }
+
+    @Test
+    public void run_AnotherRunInProgress_ShouldSkip() throws Exception {
+        CountDownLatch inProgress = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(currentVersionAction.apply(any(Application.class))).willAnswer(invocation -> {
+            inProgress.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+        CompletableFuture<Void> firstRun = CompletableFuture.runAsync(target::run);
+        assertThat(inProgress.await(5, TimeUnit.SECONDS)).isTrue();
+
+        target.run();
+        target.prefetch();
+
+        release.countDown();
+        firstRun.get(5, TimeUnit.SECONDS);
+        verify(currentVersionAction, times(1)).apply(any(Application.class));
+        verify(latestVersionAction, times(1)).apply(any(Application.class));
+    }
+
+    @Test
+    public void run_PreviousRunFailed_ShouldRunAgain() {
+        given(currentVersionAction.apply(any(Application.class))).willThrow(new IllegalStateException("failed"));
+
+        target.scheduledRun();
+        target.scheduledRun();
+
+        verify(currentVersionAction, times(2)).apply(any(Application.class));
+    }
+
+    @Test
+    public void run_ShouldTrackStagesInRunLog() {
+        given(currentVersionAction.apply(any(Application.class))).willAnswer(returnsFirstArg());
+
+        target.run();
+
+        InOrder inOrder = inOrder(runLog);
+        inOrder.verify(runLog).begin();
+        inOrder.verify(runLog).track("current-version", currentVersionAction);
+        inOrder.verify(runLog).track(SynchronizationHandler.SHUTDOWN_STAGE, shutdownAction);
+        inOrder.verify(runLog).track(SynchronizationHandler.START_STAGE, startAction);
+        inOrder.verify(runLog).end();
+    }
+
+    @Test
+    public void run_StageFails_ShouldEndRunLog() {
+        given(currentVersionAction.apply(any(Application.class))).willThrow(new IllegalStateException("failed"));
+
+        target.scheduledRun();
+
+        verify(runLog).end();
+    }
+}
@@ -0,0 +1,88 @@
+package no.difi.move.kosmos.handler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.difi.move.kosmos.action.KosmosActionException;
+import no.difi.move.kosmos.domain.application.Application;
+import no.difi.move.kosmos.domain.application.ApplicationMetadata;
+import no.difi.move.kosmos.service.launcher.dto.LaunchResult;
+import no.difi.move.kosmos.service.launcher.dto.LaunchStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SynchronizationMetricsTest {
+
+    private MeterRegistry meterRegistry;
+    private SynchronizationMetrics target;
+    private Application application;
+
+    @Before
+    public void before() {
+        meterRegistry = new SimpleMeterRegistry();
+        target = new SynchronizationMetrics(meterRegistry);
+        application = new Application()
+                .setLatest(new ApplicationMetadata().setVersion("2.2.0"));
+    }
+
+    @Test
+    public void instrument_StageSucceeds_ShouldTimeAndCountSuccess() {
+        target.instrument("synchronization", "validate", Function.identity()).apply(application);
+
+        assertThat(meterRegistry.get(SynchronizationMetrics.STAGE_TIMER)
+                .tags("run", "synchronization", "stage", "validate", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(SynchronizationMetrics.STAGE_COUNTER)
+                .tags("stage", "validate", "outcome", "success")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void instrument_StageThrows_ShouldCountFailureAndRethrow() {
+        Function<Application, Application> failing = a -> {
+            throw new KosmosActionException("failed");
+        };
+
+        assertThatThrownBy(() -> target.instrument("synchronization", "prepare", failing).apply(application))
+                .isInstanceOf(KosmosActionException.class);
+
+        assertThat(meterRegistry.get(SynchronizationMetrics.STAGE_COUNTER)
+                .tags("stage", "prepare", "outcome", "failure")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void instrument_StageDownloads_ShouldRecordSizeAndThroughput() {
+        Function<Application, Application> download = a -> {
+            a.getLatest().setDownloadSize(2048L).setDownloadDuration(Duration.ofSeconds(2));
+            return a;
+        };
+
+        target.instrument("prefetch", "prepare", download)
+                .andThen(target.instrument("prefetch", "validate", Function.identity()))
+                .apply(application);
+
+        assertThat(meterRegistry.get(SynchronizationMetrics.DOWNLOAD_SIZE).summary().totalAmount()).isEqualTo(2048.0);
+        assertThat(meterRegistry.get(SynchronizationMetrics.DOWNLOAD_THROUGHPUT).summary().max()).isEqualTo(1024.0);
+        assertThat(meterRegistry.get(SynchronizationMetrics.DOWNLOAD_DURATION).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void instrument_StageLaunches_ShouldRecordLaunchDuration() {
+        Function<Application, Application> launch = a -> a.setLaunchResult(new LaunchResult()
+                .setStatus(LaunchStatus.SUCCESS)
+                .setStartupDuration(Duration.ofSeconds(30)));
+
+        target.instrument("synchronization", "start", launch).apply(application);
+
+        assertThat(meterRegistry.get(SynchronizationMetrics.LAUNCH_DURATION)
+                .tag("status", "SUCCESS")
+                .timer().totalTime(TimeUnit.SECONDS)).isEqualTo(30.0);
+    }
+}
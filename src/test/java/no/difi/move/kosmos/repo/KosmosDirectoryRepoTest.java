@@ -4,31 +4,28 @@ import no.difi.move.kosmos.config.BlocklistProperties;
 import no.difi.move.kosmos.config.KosmosProperties;
 import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
 import no.difi.move.kosmos.util.KosmosUtils;
-import org.apache.commons.io.FileUtils;
 import org.junit.*;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Optional;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.*;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({KosmosDirectoryRepo.class, FileUtils.class})
+@PrepareForTest(KosmosDirectoryRepo.class)
 public class KosmosDirectoryRepoTest {
 
     @InjectMocks
@@ -37,11 +34,7 @@ public class KosmosDirectoryRepoTest {
     @Mock
     private KosmosProperties properties;
     @Mock
-    private File file;
-    @Mock
-    private File blocklistedFile;
-    @Mock
-    private File allowlistedFile;
+    private VersionStateStore stateStore;
 
     @Rule
     private final TemporaryFolder temporaryFolder = new TemporaryFolder();
@@ -52,8 +45,6 @@ public class KosmosDirectoryRepoTest {
         BlocklistProperties blocklistProperties = mock(BlocklistProperties.class);
         when(blocklistProperties.getDurationInHours()).thenReturn(2);
         when(properties.getBlocklist()).thenReturn(blocklistProperties);
-        when(file.getAbsolutePath()).thenReturn(temporaryFolder.getRoot().getAbsolutePath(), "file.jar");
-        when(file.getName()).thenReturn("application");
         IntegrasjonspunktProperties integrasjonspunktProperties = mock(IntegrasjonspunktProperties.class);
         when(properties.getIntegrasjonspunkt()).thenReturn(integrasjonspunktProperties);
     }
@@ -79,113 +70,92 @@ public class KosmosDirectoryRepoTest {
     }
 
     @Test
-    public void blocklist_FileProvided_BlocklistFileShouldBeCreated() throws Exception {
-        whenNew(File.class).withAnyArguments().thenReturn(blocklistedFile);
-        when(blocklistedFile.toPath())
-                .thenReturn(Paths.get(temporaryFolder.getRoot().getAbsolutePath(), "file.jar"));
-        when(blocklistedFile.createNewFile()).thenReturn(true);
-        BufferedWriter writer = mock(BufferedWriter.class);
-
-        whenNew(BufferedWriter.class).withAnyArguments().thenReturn(writer);
-
-        target.blockList(file);
+    public void blocklist_FileProvided_VersionShouldBeBlocklisted() {
+        target.blockList(new File("integrasjonspunkt-2.2.0.jar"));
 
-        verify(blocklistedFile).createNewFile();
+        verify(stateStore).blocklist(eq("2.2.0"), any(LocalDateTime.class));
     }
 
     @Test
-    public void isBlocklisted_FileIsNotBlocklisted_ShouldReturnFalse() throws Exception {
-        whenNew(File.class).withAnyArguments().thenReturn(blocklistedFile);
-        when(blocklistedFile.exists()).thenReturn(false);
-        mockStatic(FileUtils.class);
+    public void isBlocklisted_FileIsNotBlocklisted_ShouldReturnFalse() {
+        when(stateStore.get("2.2.0")).thenReturn(VersionState.empty("2.2.0"));
 
-        assertFalse(target.isBlockListed(file));
-        PowerMockito.verifyZeroInteractions(FileUtils.class);
+        assertFalse(target.isBlockListed(new File("integrasjonspunkt-2.2.0.jar")));
+        verify(stateStore, never()).removeBlocklist(any());
     }
 
     @Test
-    public void isBlacklisted_BlacklistIsNotExpired_ShouldReturnTrue() throws Exception {
-        whenNew(File.class).withAnyArguments().thenReturn(blocklistedFile);
-        mockStatic(FileUtils.class);
-        when(blocklistedFile.exists()).thenReturn(true);
-        LocalDateTime expires = LocalDateTime.now().plusMinutes(2);
-        PowerMockito.when(FileUtils.readFileToString(any(File.class), any(Charset.class)))
-                .thenReturn(expires.toString());
-
-        assertTrue(target.isBlockListed(file));
-
-        PowerMockito.verifyStatic(FileUtils.class);
-        FileUtils.readFileToString(any(), any(Charset.class));
-        PowerMockito.verifyStatic(FileUtils.class, never());
-        FileUtils.deleteQuietly(any(File.class));
+    public void isBlacklisted_BlacklistIsNotExpired_ShouldReturnTrue() {
+        when(stateStore.get("2.2.0")).thenReturn(VersionState.builder()
+                .version("2.2.0")
+                .blocklistedUntil(LocalDateTime.now().plusMinutes(2))
+                .build());
+
+        assertTrue(target.isBlockListed(new File("integrasjonspunkt-2.2.0.jar")));
+        verify(stateStore, never()).removeBlocklist(any());
     }
 
     @Test
-    public void isBlocklisted_BlocklistIsExpired_ShouldReturnFalse() throws Exception {
-        whenNew(File.class).withAnyArguments().thenReturn(blocklistedFile);
-        mockStatic(FileUtils.class);
-        when(blocklistedFile.exists()).thenReturn(true);
-        LocalDateTime expires = LocalDateTime.now().minusSeconds(1);
-        PowerMockito.when(FileUtils.readFileToString(any(File.class), any(Charset.class)))
-                .thenReturn(expires.toString());
-
-        assertFalse(target.isBlockListed(file));
-
-        PowerMockito.verifyStatic(FileUtils.class);
-        FileUtils.readFileToString(any(), any(Charset.class));
-        FileUtils.deleteQuietly(blocklistedFile);
+    public void isBlocklisted_BlocklistIsExpired_ShouldReturnFalse() {
+        when(stateStore.get("2.2.0")).thenReturn(VersionState.builder()
+                .version("2.2.0")
+                .blocklistedUntil(LocalDateTime.now().minusSeconds(1))
+                .build());
+
+        assertFalse(target.isBlockListed(new File("integrasjonspunkt-2.2.0.jar")));
+        verify(stateStore).removeBlocklist("2.2.0");
     }
 
     @Test
-    public void getAllowlistFile_shouldSucceed() throws IOException {
-        temporaryFolder.newFile("integrasjonspunkt-1.1.11.allowlisted");
-        temporaryFolder.newFile("integrasjonspunkt-1.2.1.allowlisted");
-        temporaryFolder.newFile("integrasjonspunkt-2.0.12.allowlisted");
-        when(properties.getIntegrasjonspunkt().getHome()).thenReturn(temporaryFolder.getRoot().getAbsolutePath());
+    public void getAllowlistFile_shouldSucceed() {
+        when(stateStore.getAllowlistVersion()).thenReturn(Optional.of("2.0.12"));
 
         assertEquals("integrasjonspunkt-2.0.12.allowlisted", target.getAllowlistFile().getName());
     }
 
     @Test
     public void getAllowlistFile_noFileFound_shouldReturnNull() {
-        when(properties.getIntegrasjonspunkt().getHome()).thenReturn(temporaryFolder.getRoot().getAbsolutePath());
+        when(stateStore.getAllowlistVersion()).thenReturn(Optional.empty());
         assertNull(target.getAllowlistFile());
     }
 
     @Test
-    public void getAllowVersion_shouldReturnSemanticVersion() throws IOException {
-        temporaryFolder.newFile("integrasjonspunkt-1.1.11.allowlisted");
-        when(properties.getIntegrasjonspunkt().getHome()).thenReturn(temporaryFolder.getRoot().getAbsolutePath());
+    public void getAllowVersion_shouldReturnSemanticVersion() {
+        when(stateStore.getAllowlistVersion()).thenReturn(Optional.of("1.1.11"));
         assertEquals("1.1.11", target.getAllowlistVersion());
     }
 
     @Test
     public void getAllowVersion_noFileFound_shouldReturnNull() {
-        when(properties.getIntegrasjonspunkt().getHome()).thenReturn(temporaryFolder.getRoot().getAbsolutePath());
+        when(stateStore.getAllowlistVersion()).thenReturn(Optional.empty());
         assertNull(target.getAllowlistVersion());
     }
 
     @Test
-    public void removeAllowlistFile_shouldSucceed() throws Exception {
-        String version = "1.1.11";
-        whenNew(File.class).withAnyArguments().thenReturn(allowlistedFile);
-        mockStatic(FileUtils.class);
-        when(allowlistedFile.exists()).thenReturn(true);
-        target.removeAllowlist(version);
-        PowerMockito.verifyStatic(FileUtils.class);
-        FileUtils.deleteQuietly(allowlistedFile);
+    public void removeAllowlist_shouldSucceed() {
+        target.removeAllowlist("1.1.11");
+
+        verify(stateStore).removeAllowlist("1.1.11");
+    }
+
+    @Test
+    public void allowlist_FileProvided_VersionShouldBeAllowlisted() {
+        target.allowlist(new File("integrasjonspunkt-1.2.1.jar"), "1.2.1");
+
+        verify(stateStore).allowlist("1.2.1");
     }
 
     @Test
-    public void allowlist_FileProvided_AllowlistFileShouldBeCreated() throws Exception {
-        whenNew(File.class).withAnyArguments().thenReturn(allowlistedFile);
-        when(allowlistedFile.toPath())
-                .thenReturn(Paths.get(temporaryFolder.getRoot().getAbsolutePath(), "file.jar"));
-        when(allowlistedFile.createNewFile()).thenReturn(true);
-        BufferedWriter writer = mock(BufferedWriter.class);
-        whenNew(BufferedWriter.class).withAnyArguments().thenReturn(writer);
-        target.allowlist(file, "1.2.1");
-
-        verify(allowlistedFile).createNewFile();
+    public void markVerified_FileProvided_HashShouldBeRecorded() {
+        target.markVerified(new File("integrasjonspunkt-2.2.0.jar"), new byte[]{0x0a, (byte) 0xbc});
+
+        verify(stateStore).markVerified("2.2.0", "0abc");
+    }
+
+    @Test
+    public void isVerified_HashRecorded_ShouldReturnTrue() {
+        when(stateStore.get("2.2.0")).thenReturn(VersionState.builder().version("2.2.0").verifiedHash("0abc").build());
+
+        assertTrue(target.isVerified(new File("integrasjonspunkt-2.2.0.jar")));
     }
-}
\ No newline at end of file
+}
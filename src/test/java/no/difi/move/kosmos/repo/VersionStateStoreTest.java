@@ -0,0 +1,141 @@
+package no.difi.move.kosmos.repo;
+
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VersionStateStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private KosmosProperties properties;
+    private VersionStateStore target;
+    private Path journal;
+
+    @Before
+    public void setUp() {
+        properties = new KosmosProperties()
+                .setIntegrasjonspunkt(new IntegrasjonspunktProperties()
+                        .setHome(temporaryFolder.getRoot().getAbsolutePath()));
+        target = new VersionStateStore(properties);
+        journal = temporaryFolder.getRoot().toPath().resolve(VersionStateStore.JOURNAL_FILE_NAME);
+    }
+
+    @Test
+    public void update_ShouldSurviveRestart() {
+        LocalDateTime until = LocalDateTime.now().plusHours(2);
+        target.allowlist("2.1.0");
+        target.blocklist("2.2.0", until);
+        target.markVerified("2.2.0", "0abc");
+
+        VersionStateStore restarted = new VersionStateStore(properties);
+
+        assertThat(restarted.get("2.1.0").isAllowlisted()).isTrue();
+        assertThat(restarted.get("2.2.0").getBlocklistedUntil()).isEqualTo(until);
+        assertThat(restarted.get("2.2.0").getFailureCount()).isEqualTo(1);
+        assertThat(restarted.get("2.2.0").getVerifiedHash()).isEqualTo("0abc");
+    }
+
+    @Test
+    public void recordStartup_ShouldSurviveRestart() {
+        target.recordStartup("2.1.0", Duration.ofMillis(42_500));
+
+        assertThat(new VersionStateStore(properties).get("2.1.0").getStartupDuration()).isEqualTo(Duration.ofMillis(42_500));
+    }
+
+    @Test
+    public void load_RecordWithoutStartupDuration_ShouldBeRead() throws IOException {
+        String payload = "2.1.0 - - 0 0abc";
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        Files.write(journal, String.format("%08x %s\n", crc.getValue(), payload).getBytes(StandardCharsets.UTF_8));
+
+        VersionState state = new VersionStateStore(properties).get("2.1.0");
+
+        assertThat(state.getVerifiedHash()).isEqualTo("0abc");
+        assertThat(state.getStartupDuration()).isNull();
+    }
+
+    @Test
+    public void getAllowlistVersion_ShouldReturnNewestAllowlisted() {
+        target.allowlist("1.1.11");
+        target.allowlist("2.0.12");
+        target.allowlist("1.2.1");
+        target.blocklist("2.1.0", LocalDateTime.now().plusHours(1));
+
+        assertThat(target.getAllowlistVersion()).contains("2.0.12");
+
+        target.removeAllowlist("2.0.12");
+
+        assertThat(target.getAllowlistVersion()).contains("1.2.1");
+    }
+
+    @Test
+    public void load_TornLastLine_ShouldKeepEarlierStateAndRepairJournal() throws IOException {
+        target.allowlist("2.1.0");
+        Files.write(journal, "1234abcd 2.2.0 2021-03-0".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        VersionStateStore restarted = new VersionStateStore(properties);
+
+        assertThat(restarted.getAllowlistVersion()).contains("2.1.0");
+        assertThat(restarted.get("2.2.0").isAllowlisted()).isFalse();
+        assertThat(new String(Files.readAllBytes(journal), StandardCharsets.UTF_8)).endsWith("\n");
+    }
+
+    @Test
+    public void getCatalog_ShouldListVersionsNewestFirst() {
+        target.allowlist("2.1.0");
+        target.allowlist("2.10.0");
+        target.markVerified("2.2.0", "0abc");
+        target.allowlist("not-a-version");
+
+        assertThat(target.getCatalog()).extracting(VersionState::getVersion).containsExactly("2.10.0", "2.2.0", "2.1.0");
+        assertThat(target.getAllowlistVersion()).contains("2.10.0");
+
+        target.removeAllowlist("2.10.0");
+
+        assertThat(target.getCatalog()).extracting(VersionState::getVersion).containsExactly("2.2.0", "2.1.0");
+        assertThat(target.getAllowlistVersion()).contains("2.1.0");
+    }
+
+    @Test
+    public void update_ManyChanges_ShouldCompactJournal() throws IOException {
+        for (int i = 0; i < 200; i++) {
+            target.allowlist("2.1.0");
+            target.removeAllowlist("2.1.0");
+        }
+        target.allowlist("2.1.0");
+
+        assertThat(Files.readAllLines(journal).size()).isLessThanOrEqualTo(100);
+        assertThat(new VersionStateStore(properties).getAllowlistVersion()).contains("2.1.0");
+    }
+
+    @Test
+    public void load_LegacyMarkerFiles_ShouldBeImported() throws IOException {
+        LocalDateTime until = LocalDateTime.now().plusHours(1);
+        temporaryFolder.newFile("integrasjonspunkt-2.1.0.allowlisted");
+        File blocklisted = temporaryFolder.newFile("integrasjonspunkt-2.2.0.blocklisted");
+        Files.write(blocklisted.toPath(), until.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertThat(target.getAllowlistVersion()).contains("2.1.0");
+        assertThat(target.get("2.2.0").getBlocklistedUntil()).isEqualTo(until);
+        assertThat(blocklisted).doesNotExist();
+        assertThat(journal).exists();
+    }
+}
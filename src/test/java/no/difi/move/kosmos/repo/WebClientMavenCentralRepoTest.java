@@ -1,9 +1,14 @@
 package no.difi.move.kosmos.repo;
 
+import lombok.SneakyThrows;
 import no.difi.move.kosmos.action.KosmosActionException;
 import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.domain.ArtifactBundle;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -16,10 +21,15 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -36,11 +46,15 @@ public class WebClientMavenCentralRepoTest {
     @InjectMocks
     private WebClientMavenCentralRepo target;
 
+    private final RecordingListener listener = new RecordingListener();
+    private volatile RecordedRequest jarRequest;
+
     @Before
     public void setUp() throws Exception {
         mockWebServer = new MockWebServer();
         mockWebServer.start();
         when(properties.getMavenCentral()).thenReturn(mockWebServer.url("/download").url());
+        lenient().when(properties.getMavenCentralDownloadRetries()).thenReturn(0);
     }
 
     @After
@@ -49,78 +63,192 @@ public class WebClientMavenCentralRepoTest {
     }
 
     @Test
-    public void downloadJAR_BadRequest_ShouldThrow() {
-        mockWebServer.enqueue(new MockResponse().setResponseCode(400));
-        final File download = new File(TEMP_FOLDER.getRoot(), "test.jar");
-        assertThatThrownBy(() -> target.downloadJAR("version", download.toPath()))
+    public void fetchArtifactBundle_JarBadRequest_ShouldThrowAndNotLeaveDownloadedFile() {
+        givenRepository(() -> new MockResponse().setResponseCode(400));
+        final File download = new File(TEMP_FOLDER.getRoot(), "failed.jar");
+
+        assertThatThrownBy(() -> target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> listener).block())
                 .isInstanceOf(KosmosActionException.class);
+        assertThat(download).doesNotExist();
     }
 
     @Test
-    public void downloadJAR_InternalServerError_ShouldThrow() {
-        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+    public void fetchArtifactBundle_JarInternalServerError_ShouldThrow() {
+        givenRepository(() -> new MockResponse().setResponseCode(500));
         final File download = new File(TEMP_FOLDER.getRoot(), "test.jar");
-        assertThatThrownBy(() -> target.downloadJAR("version", download.toPath()))
+
+        assertThatThrownBy(() -> target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> listener).block())
                 .isInstanceOf(KosmosActionException.class);
     }
 
     @Test
-    public void downloadJAR_Success_FileShouldHaveExpectedContent() {
-        mockWebServer.enqueue(new MockResponse()
+    @SneakyThrows
+    public void fetchArtifactBundle_PartialDownloadExists_ShouldResume() {
+        final File download = new File(TEMP_FOLDER.getRoot(), "resume.jar");
+        final File partialDownload = new File(TEMP_FOLDER.getRoot(), "resume.jar.part");
+        FileUtils.writeStringToFile(partialDownload, "jar", StandardCharsets.UTF_8);
+        givenRepository(() -> new MockResponse()
+                .setResponseCode(206)
+                .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM)
+                .setHeader(HttpHeaders.CONTENT_RANGE, "bytes 3-9/10")
+                .setBody("content"));
+
+        target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> listener).block();
+
+        assertThat(jarRequest.getHeader(HttpHeaders.RANGE)).isEqualTo("bytes=3-");
+        assertThat(download).hasContent("jarcontent");
+        assertThat(listener.getContent()).isEqualTo("jarcontent");
+        assertThat(partialDownload).doesNotExist();
+    }
+
+    @Test
+    @SneakyThrows
+    public void fetchArtifactBundle_ResumeNotSupported_ShouldStartOver() {
+        final File download = new File(TEMP_FOLDER.getRoot(), "restart.jar");
+        final File partialDownload = new File(TEMP_FOLDER.getRoot(), "restart.jar.part");
+        FileUtils.writeStringToFile(partialDownload, "garbage-from-earlier", StandardCharsets.UTF_8);
+        givenRepository(() -> new MockResponse()
                 .setResponseCode(200)
                 .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM)
                 .setBody("jarcontent"));
-        final File download = new File(TEMP_FOLDER.getRoot(), "test.jar");
 
-        target.downloadJAR("2.0.0-SNAPSHOT", download.toPath());
+        target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> listener).block();
 
         assertThat(download).hasContent("jarcontent");
+        assertThat(listener.getContent()).isEqualTo("jarcontent");
+        assertThat(partialDownload).doesNotExist();
     }
 
     @Test
-    public void getChecksum_BadRequest_ShouldThrow() {
-        mockWebServer.enqueue(new MockResponse().setResponseCode(400));
-        assertThatThrownBy(() -> target.getChecksum("2.0.0-SNAPSHOT", "sha1"))
-                .isInstanceOf(KosmosActionException.class);
+    public void fetchArtifactBundle_Success_ShouldFetchChecksumsSignatureAndJar() {
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.endsWith(".jar.sha1")) {
+                    return new MockResponse().setBody("414243");
+                }
+                if (path.endsWith(".jar.md5")) {
+                    return new MockResponse().setBody("444546");
+                }
+                if (path.endsWith(".jar.asc")) {
+                    return new MockResponse().setBody("sigbody");
+                }
+                return new MockResponse()
+                        .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM)
+                        .setBody("jarcontent");
+            }
+        });
+        final File download = new File(TEMP_FOLDER.getRoot(), "bundle.jar");
+
+        ArtifactBundle bundle = target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> {
+            assertThat(b.getSignature()).isEqualTo("sigbody");
+            return listener;
+        }).block();
+
+        assertThat(bundle).isNotNull();
+        assertThat(bundle.getVersion()).isEqualTo("2.0.0-SNAPSHOT");
+        assertThat(bundle.getSha1()).containsExactly(65, 66, 67);
+        assertThat(bundle.getMd5()).containsExactly(68, 69, 70);
+        assertThat(bundle.getSignature()).isEqualTo("sigbody");
+        assertThat(download).hasContent("jarcontent");
+        assertThat(listener.getContent()).isEqualTo("jarcontent");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(4);
     }
 
     @Test
-    public void getChecksum_InternalServerError_ShouldThrow() {
-        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
-        assertThatThrownBy(() -> target.getChecksum("2.0.0-SNAPSHOT", "sha1"))
+    public void fetchArtifactBundle_SignatureMissing_ShouldThrowAndNotLeaveDownloadedFile() {
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().endsWith(".jar.asc")) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                return new MockResponse().setBody("414243");
+            }
+        });
+        final File download = new File(TEMP_FOLDER.getRoot(), "unsigned.jar");
+
+        assertThatThrownBy(() -> target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> listener).block())
                 .isInstanceOf(KosmosActionException.class);
+        assertThat(download).doesNotExist();
     }
 
     @Test
-    public void getChecksum_Success_ChecksumShouldHaveExpectedContent() {
-        mockWebServer.enqueue(new MockResponse()
-                .setResponseCode(200)
-                .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
-                .setBody("414243"));
-        assertThat(target.getChecksum("2.0.0-SNAPSHOT", "sha1"))
-                .containsExactly(65, 66, 67);
-    }
+    public void fetchArtifactBundle_ChecksumBadRequest_ShouldThrow() {
+        givenRepository(400, 200);
+        final File download = new File(TEMP_FOLDER.getRoot(), "test.jar");
 
-    @Test
-    public void downloadSignature_Success_SignatureShouldHaveExpectedContent() {
-        mockWebServer.enqueue(new MockResponse()
-                .setBody("sigbody")
-                .setResponseCode(200));
-        assertThat(target.downloadSignature("2.2.0-SNAPSHOT"))
-                .contains("sigbody");
+        assertThatThrownBy(() -> target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> listener).block())
+                .isInstanceOf(KosmosActionException.class);
     }
 
     @Test
-    public void downloadSignature_BadRequest_ShouldThrow() {
-        mockWebServer.enqueue(new MockResponse().setResponseCode(400));
-        assertThatThrownBy(() -> target.downloadSignature("version"))
+    public void fetchArtifactBundle_ChecksumInternalServerError_ShouldThrow() {
+        givenRepository(500, 200);
+        final File download = new File(TEMP_FOLDER.getRoot(), "test.jar");
+
+        assertThatThrownBy(() -> target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> listener).block())
                 .isInstanceOf(KosmosActionException.class);
     }
 
     @Test
-    public void downloadSignature_InternalServerError_ShouldThrow() {
-        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
-        assertThatThrownBy(() -> target.downloadSignature("version"))
+    public void fetchArtifactBundle_SignatureInternalServerError_ShouldThrow() {
+        givenRepository(200, 500);
+        final File download = new File(TEMP_FOLDER.getRoot(), "test.jar");
+
+        assertThatThrownBy(() -> target.fetchArtifactBundle("2.0.0-SNAPSHOT", download.toPath(), b -> listener).block())
                 .isInstanceOf(KosmosActionException.class);
     }
-}
\ No newline at end of file
+
+    private void givenRepository(Supplier<MockResponse> jar) {
+        givenRepository(200, 200, jar);
+    }
+
+    private void givenRepository(int checksumStatus, int signatureStatus) {
+        givenRepository(checksumStatus, signatureStatus, () -> new MockResponse()
+                .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM)
+                .setBody("jarcontent"));
+    }
+
+    /**
+     * Serves the checksums, the signature and the JAR, whichever order they are requested in.
+     */
+    private void givenRepository(int checksumStatus, int signatureStatus, Supplier<MockResponse> jar) {
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.endsWith(".jar.sha1") || path.endsWith(".jar.md5")) {
+                    return new MockResponse().setResponseCode(checksumStatus).setBody("414243");
+                }
+                if (path.endsWith(".jar.asc")) {
+                    return new MockResponse().setResponseCode(signatureStatus).setBody("sigbody");
+                }
+                jarRequest = request;
+                return jar.get();
+            }
+        });
+    }
+
+    private static class RecordingListener implements DownloadListener {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public void reset() {
+            bytes.reset();
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            bytes.write(chunk, 0, chunk.length);
+        }
+
+        String getContent() {
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
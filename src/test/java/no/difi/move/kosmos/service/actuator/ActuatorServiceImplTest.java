@@ -1,5 +1,7 @@
 package no.difi.move.kosmos.service.actuator;
 
+import lombok.SneakyThrows;
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
 import no.difi.move.kosmos.config.KosmosProperties;
 import no.difi.move.kosmos.domain.HealthStatus;
 import no.difi.move.kosmos.domain.VersionInfo;
@@ -11,6 +13,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
@@ -27,6 +34,8 @@ public class ActuatorServiceImplTest {
     public void before() {
         given(properties.getShutdownRetries()).willReturn(3);
         given(properties.getShutdownPollIntervalInMs()).willReturn(1);
+        given(properties.getShutdownInitialPollIntervalInMs()).willReturn(1);
+        given(properties.getActuatorSnapshotTtlInMs()).willReturn(60000);
     }
 
     @After
@@ -37,11 +46,52 @@ public class ActuatorServiceImplTest {
     @Test
     public void testGetStatus() {
         given(actuatorClient.getStatus()).willReturn(HealthStatus.UP, HealthStatus.DOWN);
+        given(actuatorClient.getVersionInfo()).willReturn(VersionInfo.builder().resolved(true).version("2").build());
 
         assertThat(actuatorServiceImpl.getStatus()).isSameAs(HealthStatus.UP);
+        assertThat(actuatorServiceImpl.getStatus()).isSameAs(HealthStatus.UP);
+        actuatorServiceImpl.invalidate();
         assertThat(actuatorServiceImpl.getStatus()).isSameAs(HealthStatus.DOWN);
 
         verify(actuatorClient, times(2)).getStatus();
+        verify(actuatorClient, times(2)).getVersionInfo();
+    }
+
+    @Test
+    public void testGetStatusAndVersionShareOneSnapshot() {
+        given(properties.getIntegrasjonspunkt()).willReturn(new IntegrasjonspunktProperties());
+        given(actuatorClient.getStatus()).willReturn(HealthStatus.UP);
+        given(actuatorClient.getVersionInfo()).willReturn(VersionInfo.builder().resolved(true).version("2").build());
+
+        assertThat(actuatorServiceImpl.getVersionInfo().getVersion()).isEqualTo("2");
+        assertThat(actuatorServiceImpl.getStatus()).isSameAs(HealthStatus.UP);
+        assertThat(actuatorServiceImpl.getStatus()).isSameAs(HealthStatus.UP);
+
+        verify(actuatorClient).getStatus();
+        verify(actuatorClient).getVersionInfo();
+    }
+
+    @Test
+    @SneakyThrows
+    public void testConcurrentCallersShareOneRequest() {
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch respond = new CountDownLatch(1);
+        given(actuatorClient.getStatus()).willAnswer(invocation -> {
+            requested.countDown();
+            respond.await(5, TimeUnit.SECONDS);
+            return HealthStatus.UP;
+        });
+        given(actuatorClient.getVersionInfo()).willReturn(VersionInfo.builder().resolved(true).version("2").build());
+
+        CompletableFuture<HealthStatus> first = CompletableFuture.supplyAsync(actuatorServiceImpl::getStatus);
+        assertThat(requested.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<HealthStatus> second = CompletableFuture.supplyAsync(actuatorServiceImpl::getStatus);
+        respond.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(HealthStatus.UP);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(HealthStatus.UP);
+        verify(actuatorClient).getStatus();
+        verify(actuatorClient).getVersionInfo();
     }
 
     @Test
@@ -66,6 +116,16 @@ public class ActuatorServiceImplTest {
         verify(actuatorClient).getStatus();
     }
 
+    @Test
+    public void testRequestShutdownShouldNotWait() {
+        given(actuatorClient.requestShutdown()).willReturn(true);
+
+        assertThat(actuatorServiceImpl.requestShutdown()).isTrue();
+
+        verify(actuatorClient).requestShutdown();
+        verify(actuatorClient, never()).getStatus();
+    }
+
     @Test
     public void testShutdownRetries() {
         given(actuatorClient.requestShutdown()).willReturn(true);
@@ -87,11 +147,12 @@ public class ActuatorServiceImplTest {
         assertThat(actuatorServiceImpl.shutdown()).isFalse();
 
         verify(actuatorClient).requestShutdown();
-        verify(actuatorClient, times(3)).getStatus();
+        verify(actuatorClient, atLeastOnce()).getStatus();
     }
 
     @Test
     public void testGetVersion() {
+        given(properties.getIntegrasjonspunkt()).willReturn(new IntegrasjonspunktProperties());
         given(actuatorClient.getVersionInfo()).willReturn(
                 VersionInfo.builder()
                         .resolved(false)
@@ -104,8 +165,55 @@ public class ActuatorServiceImplTest {
         );
 
         assertThat(actuatorServiceImpl.getVersionInfo().isResolved()).isFalse();
+        actuatorServiceImpl.invalidate();
         assertThat(actuatorServiceImpl.getVersionInfo().isResolved()).isTrue();
 
         verify(actuatorClient, times(2)).getVersionInfo();
+        verify(actuatorClient, times(2)).getStatus();
+    }
+
+    @Test
+    @SneakyThrows
+    public void testGetVersionFindsInstanceOnIdlePort() {
+        given(properties.getIntegrasjonspunkt()).willReturn(blueGreenProperties());
+        given(actuatorClient.getVersionInfo()).willReturn(VersionInfo.builder().resolved(false).build());
+        given(actuatorClient.getVersionInfo(9094)).willReturn(VersionInfo.builder().resolved(true).version("2").build());
+        given(actuatorClient.getStatus(9094)).willReturn(HealthStatus.UP);
+
+        assertThat(actuatorServiceImpl.getVersionInfo().getVersion()).isEqualTo("2");
+        assertThat(actuatorServiceImpl.getActivePort()).isEqualTo(9094);
+        assertThat(actuatorServiceImpl.getIdlePort()).isEqualTo(9093);
+        assertThat(actuatorServiceImpl.getStatus()).isSameAs(HealthStatus.UP);
+
+        verify(actuatorClient).getVersionInfo();
+        verify(actuatorClient).getStatus();
+        verify(actuatorClient, times(2)).getVersionInfo(9094);
+        verify(actuatorClient).getStatus(9094);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testSwitchBackToConfiguredPort() {
+        given(properties.getIntegrasjonspunkt()).willReturn(blueGreenProperties());
+
+        assertThat(actuatorServiceImpl.getActivePort()).isEqualTo(9093);
+        assertThat(actuatorServiceImpl.getIdlePort()).isEqualTo(9094);
+
+        actuatorServiceImpl.switchTo(9094);
+        assertThat(actuatorServiceImpl.getIdlePort()).isEqualTo(9093);
+
+        actuatorServiceImpl.switchTo(9093);
+        assertThat(actuatorServiceImpl.getActivePort()).isEqualTo(9093);
+        assertThat(actuatorServiceImpl.getIdlePort()).isEqualTo(9094);
+    }
+
+    @SneakyThrows
+    private static IntegrasjonspunktProperties blueGreenProperties() {
+        IntegrasjonspunktProperties integrasjonspunktProperties = new IntegrasjonspunktProperties()
+                .setBaseURL(new URL("http://localhost:9093"));
+        integrasjonspunktProperties.getBlueGreen()
+                .setEnabled(true)
+                .setAlternatePort(9094);
+        return integrasjonspunktProperties;
     }
 }
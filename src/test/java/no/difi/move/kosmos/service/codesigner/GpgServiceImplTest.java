@@ -18,11 +18,14 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 
 import static java.nio.file.Files.readAllBytes;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.powermock.api.mockito.PowerMockito.*;
@@ -66,49 +69,79 @@ public class GpgServiceImplTest {
     }
 
     @Test
-    public void verify_Success_ShouldVerifyAndReturnTrue() {
+    public void createVerifier_Success_ShouldVerifyAndReturnTrue() throws IOException {
         List<Resource> bothMatchingAndNotMatchingKeys = Lists.newArrayList(matchingPublicKeyFilePath, notMatchingPublicKeyFilePath);
         when(verificationProperties.getPublicKeyPaths()).thenReturn(bothMatchingAndNotMatchingKeys);
-        assertTrue(target.verify(signedDataFilePath, downloadedSignature));
+        SignedDataVerifier verifier = target.createVerifier(downloadedSignature);
+        verifier.update(ByteBuffer.wrap(readAllBytes(Paths.get(signedDataFilePath))));
+        assertTrue(verifier.verify());
     }
 
     @Test
-    public void verify_WrongPublicKeyInput_ShouldThrow() {
+    public void createVerifier_WrongPublicKeyInput_ShouldThrow() {
         when(verificationProperties.getPublicKeyPaths()).thenReturn(noMatchingPublicKeys);
-        assertThatThrownBy(() -> target.verify(signedDataFilePath, downloadedSignature))
+        assertThatThrownBy(() -> target.createVerifier(downloadedSignature))
                 .isInstanceOf(KosmosActionException.class);
     }
 
     @Test
-    public void verify_WrongSignatureInput_ShouldThrow() {
+    public void createVerifier_WrongSignatureInput_ShouldThrow() {
         when(verificationProperties.getPublicKeyPaths()).thenReturn(downloadedPublicKeys);
-        assertThatThrownBy(() -> target.verify(signedDataFilePath, anotherSignature))
+        assertThatThrownBy(() -> target.createVerifier(anotherSignature))
                 .isInstanceOf(KosmosActionException.class);
     }
 
     @Test
-    public void verify_InputIsNull_ShouldThrow() {
-        when(verificationProperties.getPublicKeyPaths()).thenReturn(downloadedPublicKeys);
-        assertThatThrownBy(() -> target.verify(null, downloadedSignature))
+    public void createVerifier_InputIsNull_ShouldThrow() {
+        assertThatThrownBy(() -> target.createVerifier(null))
                 .isInstanceOf(IllegalArgumentException.class);
     }
 
     @Test
-    public void verify_NoSignature_ShouldThrow() throws Exception {
+    public void createVerifier_NoSignature_ShouldThrow() throws Exception {
         when(verificationProperties.getPublicKeyPaths()).thenReturn(downloadedPublicKeys);
         JcaPGPObjectFactory objectFactory = mock(JcaPGPObjectFactory.class);
         when(objectFactory.nextObject()).thenReturn(null);
         whenNew(JcaPGPObjectFactory.class).withAnyArguments().thenReturn(objectFactory);
-        assertThatThrownBy(() -> target.verify(signedDataFilePath, downloadedSignature))
+        assertThatThrownBy(() -> target.createVerifier(downloadedSignature))
                 .isInstanceOf(KosmosActionException.class);
     }
 
     @Test
-    public void verify_ExpiredPublicKey_ShouldThrow() {
+    public void createVerifier_ExpiredPublicKey_ShouldThrow() {
         when(verificationProperties.getPublicKeyPaths()).thenReturn(downloadedPublicKeys);
         doThrow(new KosmosActionException("Expired key")).when(keyVerifier).verify(any(PGPPublicKey.class));
         assertThatThrownBy(
-                () -> target.verify(signedDataFilePath, downloadedSignature))
+                () -> target.createVerifier(downloadedSignature))
                 .isInstanceOf(KosmosActionException.class);
     }
+
+    @Test
+    public void createVerifier_ChunkedUpdates_ShouldVerify() throws IOException {
+        when(verificationProperties.getPublicKeyPaths()).thenReturn(downloadedPublicKeys);
+        byte[] signedData = readAllBytes(Paths.get(signedDataFilePath));
+        SignedDataVerifier verifier = target.createVerifier(downloadedSignature);
+        verifier.update(ByteBuffer.wrap(signedData, 0, signedData.length / 2));
+        verifier.update(ByteBuffer.wrap(signedData, signedData.length / 2, signedData.length - signedData.length / 2));
+        assertTrue(verifier.verify());
+    }
+
+    @Test
+    public void createVerifier_Reset_ShouldDiscardEarlierUpdates() throws IOException {
+        when(verificationProperties.getPublicKeyPaths()).thenReturn(downloadedPublicKeys);
+        SignedDataVerifier verifier = target.createVerifier(downloadedSignature);
+        verifier.update(ByteBuffer.wrap("garbage".getBytes()));
+        verifier.reset();
+        verifier.update(ByteBuffer.wrap(readAllBytes(Paths.get(signedDataFilePath))));
+        assertTrue(verifier.verify());
+    }
+
+    @Test
+    public void createVerifier_TamperedData_ShouldNotVerify() throws IOException {
+        when(verificationProperties.getPublicKeyPaths()).thenReturn(downloadedPublicKeys);
+        SignedDataVerifier verifier = target.createVerifier(downloadedSignature);
+        verifier.update(ByteBuffer.wrap(readAllBytes(Paths.get(signedDataFilePath))));
+        verifier.update(ByteBuffer.wrap("tampered".getBytes()));
+        assertFalse(verifier.verify());
+    }
 }
@@ -0,0 +1,80 @@
+package no.difi.move.kosmos.service.codesigner;
+
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignatureList;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PublicKeyRingCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static long signerKeyID;
+
+    private PublicKeyRingCache target;
+    private File keyFile;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        try (InputStream signatureStream = PGPUtil.getDecoderStream(new ClassPathResource("/gpg/signature.asc").getInputStream())) {
+            signerKeyID = ((PGPSignatureList) new JcaPGPObjectFactory(signatureStream).nextObject()).get(0).getKeyID();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        target = new PublicKeyRingCache();
+        keyFile = temporaryFolder.newFile("public-key.asc");
+    }
+
+    @Test
+    public void getPublicKey_FileUnchanged_ShouldReuseParsedKey() throws IOException {
+        copy("/gpg/public-key.asc");
+        Resource resource = new FileSystemResource(keyFile);
+
+        PGPPublicKey first = target.getPublicKey(resource, signerKeyID);
+
+        assertThat(first).isNotNull();
+        assertThat(target.getPublicKey(resource, signerKeyID)).isSameAs(first);
+    }
+
+    @Test
+    public void getPublicKey_FileReplaced_ShouldParseNewKeys() throws IOException {
+        copy("/gpg/invalidPublicKeyEfmTest.asc");
+        Resource resource = new FileSystemResource(keyFile);
+        assertThat(target.getPublicKey(resource, signerKeyID)).isNull();
+
+        copy("/gpg/public-key.asc");
+
+        assertThat(target.getPublicKey(resource, signerKeyID)).isNotNull();
+    }
+
+    @Test
+    public void getPublicKey_FileMissing_ShouldReturnNull() {
+        assertThat(target.getPublicKey(new FileSystemResource(new File(temporaryFolder.getRoot(), "missing.asc")), signerKeyID))
+                .isNull();
+    }
+
+    private void copy(String resource) throws IOException {
+        try (InputStream inputStream = new ClassPathResource(resource).getInputStream()) {
+            Files.copy(inputStream, keyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package no.difi.move.kosmos.service.launcher;
+
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassDataSharingTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final KosmosProperties properties = new KosmosProperties();
+    private ClassDataSharing target;
+
+    @Before
+    public void setUp() {
+        properties.setIntegrasjonspunkt(new IntegrasjonspunktProperties());
+        target = new ClassDataSharing(properties);
+    }
+
+    @Test
+    public void parseJavaVersion_shouldReadFeatureVersion() {
+        assertThat(ClassDataSharing.parseJavaVersion("java version \"1.8.0_292\"\nJava(TM) SE Runtime Environment"))
+                .contains(8);
+        assertThat(ClassDataSharing.parseJavaVersion("openjdk version \"17.0.2\" 2022-01-18\nOpenJDK Runtime Environment"))
+                .contains(17);
+        assertThat(ClassDataSharing.parseJavaVersion("openjdk version \"13\" 2019-09-17")).contains(13);
+        assertThat(ClassDataSharing.parseJavaVersion("java: command not found")).isEmpty();
+    }
+
+    @Test
+    public void getArchivePath_shouldBeNextToJar() {
+        assertThat(ClassDataSharing.getArchivePath("/tmp/root/integrasjonspunkt-2.2.0.jar"))
+                .isEqualTo(Paths.get("/tmp/root/integrasjonspunkt-2.2.0.jsa"));
+    }
+
+    @Test
+    public void getArchive_disabled_shouldBeEmpty() throws Exception {
+        File jar = temporaryFolder.newFile("integrasjonspunkt-2.2.0.jar");
+        temporaryFolder.newFile("integrasjonspunkt-2.2.0.jsa");
+
+        assertThat(target.getArchive(jar.getAbsolutePath(), "java")).isEmpty();
+    }
+
+    @Test
+    public void isEnabled_javaNotFound_shouldBeFalse() {
+        properties.getIntegrasjonspunkt().getClassDataSharing().setEnabled(true);
+
+        assertThat(target.isEnabled(temporaryFolder.getRoot().toPath().resolve("no-java").toString())).isFalse();
+    }
+}
@@ -0,0 +1,244 @@
+package no.difi.move.kosmos.service.launcher;
+
+import com.google.common.io.BaseEncoding;
+import lombok.SneakyThrows;
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExplodedLayoutTest {
+
+    private static final String START_CLASS = "no.difi.meldingsutveksling.IntegrasjonspunktApplication";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private KosmosDirectoryRepo kosmosDirectoryRepo;
+
+    private final KosmosProperties properties = new KosmosProperties();
+    private ExplodedLayout target;
+    private File jar;
+
+    @Before
+    public void setUp() throws IOException {
+        properties.setIntegrasjonspunkt(new IntegrasjonspunktProperties()
+                .setHome(temporaryFolder.getRoot().getAbsolutePath())
+                .setExploded(true));
+        target = new ExplodedLayout(properties, kosmosDirectoryRepo, new LibraryStore(properties));
+        jar = new File(temporaryFolder.getRoot(), "integrasjonspunkt-2.2.0.jar");
+        writeBootJar(jar, "b");
+    }
+
+    @Test
+    public void extract_verifiedJar_shouldLaunchFromExtractedClasspath() throws IOException {
+        givenVerified();
+
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+
+        Path directory = ExplodedLayout.getDirectory(jar.getAbsolutePath());
+        assertThat(directory.resolve("BOOT-INF/classes/application.properties")).hasContent("server.port=9093");
+        assertThat(target.get(jar.getAbsolutePath())).hasValueSatisfying(exploded -> {
+            assertThat(exploded.getStartClass()).isEqualTo(START_CLASS);
+            assertThat(exploded.getClasspath()).containsExactly(
+                    new File("integrasjonspunkt-2.2.0", "BOOT-INF/classes").getPath(),
+                    new File("integrasjonspunkt-2.2.0", "BOOT-INF/lib/b.jar").getPath(),
+                    new File("integrasjonspunkt-2.2.0", "BOOT-INF/lib/a.jar").getPath());
+        });
+    }
+
+    @Test
+    public void extract_twoVersions_shouldShareUnchangedLibraries() throws IOException {
+        File next = new File(temporaryFolder.getRoot(), "integrasjonspunkt-2.3.0.jar");
+        writeBootJar(next, "b2");
+        givenVerified(jar);
+        givenVerified(next);
+
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+        assertThat(target.extract(next.getAbsolutePath())).isTrue();
+
+        Path directory = ExplodedLayout.getDirectory(jar.getAbsolutePath());
+        Path nextDirectory = ExplodedLayout.getDirectory(next.getAbsolutePath());
+        assertThat(Files.isSameFile(directory.resolve("BOOT-INF/lib/a.jar"), nextDirectory.resolve("BOOT-INF/lib/a.jar"))).isTrue();
+        assertThat(Files.isSameFile(directory.resolve("BOOT-INF/lib/b.jar"), nextDirectory.resolve("BOOT-INF/lib/b.jar"))).isFalse();
+        assertThat(nextDirectory.resolve("BOOT-INF/lib/b.jar")).hasContent("b2");
+    }
+
+    @Test
+    public void deleteOrphaned_jarDeleted_shouldDeleteOnlyWhatNoOtherVersionUses() throws IOException {
+        File next = new File(temporaryFolder.getRoot(), "integrasjonspunkt-2.3.0.jar");
+        writeBootJar(next, "b2");
+        givenVerified(jar);
+        givenVerified(next);
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+        assertThat(target.extract(next.getAbsolutePath())).isTrue();
+        Path nextDirectory = ExplodedLayout.getDirectory(next.getAbsolutePath());
+        Path store = temporaryFolder.getRoot().toPath().resolve(LibraryStore.DIRECTORY_NAME);
+        assertThat(countFiles(store)).isEqualTo(3);
+
+        Files.delete(jar.toPath());
+        target.deleteOrphaned();
+
+        assertThat(ExplodedLayout.getDirectory(jar.getAbsolutePath())).doesNotExist();
+        assertThat(countFiles(store)).isEqualTo(2);
+        assertThat(nextDirectory.resolve("BOOT-INF/lib/a.jar")).hasContent("a");
+        assertThat(target.get(next.getAbsolutePath())).isPresent();
+    }
+
+    @Test
+    public void extract_jarDoesNotMatchVerifiedHash_shouldNotExtract() {
+        given(kosmosDirectoryRepo.getVerifiedHash(any(File.class))).willReturn("0000");
+
+        assertThat(target.extract(jar.getAbsolutePath())).isFalse();
+
+        assertThat(ExplodedLayout.getDirectory(jar.getAbsolutePath())).doesNotExist();
+    }
+
+    @Test
+    public void get_extractedFileChanged_shouldLaunchFromJar() throws IOException {
+        givenVerified();
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+        Path changed = ExplodedLayout.getDirectory(jar.getAbsolutePath()).resolve("BOOT-INF/lib/a.jar");
+        assertThat(changed.toFile().setWritable(true)).isTrue();
+        Files.write(changed, "tampered".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(target.get(jar.getAbsolutePath())).isEmpty();
+    }
+
+    @Test
+    public void extract_extractedFileChangedKeepingSizeAndTime_shouldExtractAgain() throws IOException {
+        givenVerified();
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+        Path changed = ExplodedLayout.getDirectory(jar.getAbsolutePath()).resolve("BOOT-INF/classes/application.properties");
+        FileTime lastModified = Files.getLastModifiedTime(changed);
+        assertThat(changed.toFile().setWritable(true)).isTrue();
+        Files.write(changed, "server.port=6666".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(changed, lastModified);
+
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+
+        assertThat(changed).hasContent("server.port=9093");
+        assertThat(target.get(jar.getAbsolutePath())).isPresent();
+    }
+
+    @Test
+    public void extract_directoryInUse_shouldMoveNewDirectoryIntoPlace() throws IOException {
+        givenVerified();
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+        Path directory = ExplodedLayout.getDirectory(jar.getAbsolutePath());
+        Path changed = directory.resolve("BOOT-INF/classes/application.properties");
+        Object fileKey = Files.readAttributes(changed, BasicFileAttributes.class).fileKey();
+        FileTime lastModified = Files.getLastModifiedTime(changed);
+        assertThat(changed.toFile().setWritable(true)).isTrue();
+        Files.write(changed, "server.port=6666".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(changed, lastModified);
+
+        try (InputStream inUse = Files.newInputStream(directory.resolve("BOOT-INF/lib/a.jar"))) {
+            assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+
+            assertThat(inUse).hasContent("a");
+        }
+
+        assertThat(changed).hasContent("server.port=9093");
+        if (fileKey != null) {
+            assertThat(Files.readAttributes(changed, BasicFileAttributes.class).fileKey()).isNotEqualTo(fileKey);
+        }
+        try (Stream<Path> list = Files.list(temporaryFolder.getRoot().toPath())) {
+            assertThat(list.map(path -> path.getFileName().toString()))
+                    .containsExactlyInAnyOrder("integrasjonspunkt-2.2.0.jar", "integrasjonspunkt-2.2.0", LibraryStore.DIRECTORY_NAME);
+        }
+        assertThat(target.get(jar.getAbsolutePath())).isPresent();
+    }
+
+    @Test
+    public void extract_stagingLeftByCrash_shouldDeleteIt() throws IOException {
+        givenVerified();
+        Path staging = temporaryFolder.newFolder("integrasjonspunkt-2.2.0.staging-1234").toPath();
+        Files.write(staging.resolve("partial"), "partial".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+
+        assertThat(staging).doesNotExist();
+        assertThat(target.get(jar.getAbsolutePath())).isPresent();
+    }
+
+    @Test
+    public void get_newVersionVerified_shouldLaunchFromJar() {
+        givenVerified();
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+        given(kosmosDirectoryRepo.getVerifiedHash(any(File.class))).willReturn("0000");
+
+        assertThat(target.get(jar.getAbsolutePath())).isEmpty();
+    }
+
+    @Test
+    public void get_disabled_shouldLaunchFromJar() {
+        givenVerified();
+        assertThat(target.extract(jar.getAbsolutePath())).isTrue();
+        properties.getIntegrasjonspunkt().setExploded(false);
+
+        assertThat(target.get(jar.getAbsolutePath())).isEmpty();
+    }
+
+    private void givenVerified() {
+        givenVerified(jar);
+    }
+
+    @SneakyThrows
+    private void givenVerified(File file) {
+        byte[] sha1 = MessageDigest.getInstance("SHA-1").digest(Files.readAllBytes(file.toPath()));
+        given(kosmosDirectoryRepo.getVerifiedHash(file)).willReturn(BaseEncoding.base16().lowerCase().encode(sha1));
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            return walk.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static void writeBootJar(File file, String bContent) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "org.springframework.boot.loader.JarLauncher");
+        manifest.getMainAttributes().putValue("Start-Class", START_CLASS);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file.toPath()), manifest)) {
+            write(out, "BOOT-INF/classes/application.properties", "server.port=9093");
+            write(out, "BOOT-INF/lib/a.jar", "a");
+            write(out, "BOOT-INF/lib/b.jar", bContent);
+            write(out, "BOOT-INF/classpath.idx", "- \"BOOT-INF/lib/b.jar\"\n- \"BOOT-INF/lib/a.jar\"\n");
+        }
+    }
+
+    private static void write(JarOutputStream out, String name, String content) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+}
@@ -4,30 +4,44 @@ import lombok.SneakyThrows;
 import no.difi.move.kosmos.config.KosmosProperties;
 import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
 import no.difi.move.kosmos.domain.HealthStatus;
+import no.difi.move.kosmos.repo.KosmosDirectoryRepo;
 import no.difi.move.kosmos.service.actuator.ActuatorService;
 import no.difi.move.kosmos.service.launcher.dto.LaunchStatus;
+import no.difi.move.kosmos.service.launcher.dto.StartupFailure;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.zeroturnaround.exec.ProcessExecutor;
 import org.zeroturnaround.exec.ProcessResult;
 import org.zeroturnaround.exec.StartedProcess;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.verifyNew;
@@ -43,6 +57,18 @@ public class LauncherServiceImplTest {
     @Mock
     private EnvironmentService environmentService;
     @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ProcessTracker processTracker;
+    @Mock
+    private TrackedProcess trackedProcess;
+    @Mock
+    private KosmosDirectoryRepo kosmosDirectoryRepo;
+    @Mock
+    private ClassDataSharing classDataSharing;
+    @Mock
+    private ExplodedLayout explodedLayout;
+    @Mock
     private ProcessExecutor processExecutorMock;
     @Mock
     private StartedProcess startedProcessMock;
@@ -62,8 +88,10 @@ public class LauncherServiceImplTest {
     @Before
     @SneakyThrows
     public void before() {
+        given(properties.getLaunchInitialPollIntervalInMs()).willReturn(10);
         given(properties.getLaunchPollIntervalInMs()).willReturn(100);
         given(properties.getLaunchTimeoutInMs()).willReturn(300);
+        given(properties.getLaunchQuietPeriodInMs()).willReturn(60000);
         IntegrasjonspunktProperties integrasjonspunktProperties = mock(IntegrasjonspunktProperties.class);
         given(integrasjonspunktProperties.isIncludeLog()).willReturn(false);
         given(properties.getIntegrasjonspunkt()).willReturn(integrasjonspunktProperties);
@@ -71,6 +99,10 @@ public class LauncherServiceImplTest {
                 new IntegrasjonspunktProperties()
                         .setProfile("staging")
                         .setHome("/tmp/root")
+                        .setStartupLogMaxLines(1000)
+                        .setStartupLogMaxBytes(131072)
+                        .setConsoleLogMaxBytes(1024)
+                        .setConsoleLogFiles(2)
         );
         given(properties.getOrgnumber()).willReturn("910077473");
         whenNew(StartupLog.class).withAnyArguments().thenReturn(startupLogMock);
@@ -80,6 +112,7 @@ public class LauncherServiceImplTest {
         given(processExecutorMock.directory(any())).willReturn(processExecutorMock);
         given(processExecutorMock.environment(any())).willReturn(processExecutorMock);
         given(processExecutorMock.redirectOutput(any())).willReturn(processExecutorMock);
+        given(processExecutorMock.addListener(any())).willReturn(processExecutorMock);
         given(processExecutorMock.start()).willReturn(startedProcessMock);
         given(startedProcessMock.getFuture()).willReturn(futureMock);
     }
@@ -87,15 +120,17 @@ public class LauncherServiceImplTest {
     @Test
     @SneakyThrows
     public void testLaunchIntegrasjonspunkt_whenSuccess() {
-        given(actuatorService.getStatus()).willReturn(HealthStatus.UP);
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(actuatorService.getStatus(9093)).willReturn(HealthStatus.UP);
         given(environmentService.getChildProcessEnvironment()).willReturn(new HashMap<>());
 
         assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
                 .hasFieldOrPropertyWithValue("jarPath", "test.jar")
                 .hasFieldOrPropertyWithValue("status", LaunchStatus.SUCCESS)
-                .hasFieldOrPropertyWithValue("startupLog", "theStartUpLog");
+                .hasFieldOrPropertyWithValue("startupLog", "theStartUpLog")
+                .extracting("startupDuration").isNotNull();
 
-        verifyNew(StartupLog.class).withArguments(false);
+        verifyNew(StartupLog.class).withArguments(eq(false), any(StartupMonitor.class), eq(1000), eq(131072));
         verifyNew(File.class).withArguments("/tmp/root");
         verifyNew(ProcessExecutor.class).withArguments(listArgumentCaptor.capture());
 
@@ -106,12 +141,108 @@ public class LauncherServiceImplTest {
         );
 
         verify(futureMock, never()).cancel(anyBoolean());
+        verify(actuatorService).invalidate();
+        verify(kosmosDirectoryRepo).recordStartupDuration(eq(fileMock), any(Duration.class));
+        verify(eventPublisher).publishEvent(new IntegrasjonspunktLaunchedEvent("test.jar", futureMock));
+        // Neither a process nor a PID for a mocked launch
+        verify(processTracker).track(null, null, null);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_withJavaHomeOptionsAndArguments() {
+        properties.getIntegrasjonspunkt()
+                .setJavaHome("/opt/jdk")
+                .setJvmOptions(Arrays.asList("-Xmx512m", "-Xlog:gc:file={home}/gc-{version}.log"))
+                .setArguments(Collections.singletonList("--server.tomcat.basedir={home}/tomcat-{port}-{profile}"));
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(actuatorService.getStatus(9093)).willReturn(HealthStatus.UP);
+
+        launcherService.launchIntegrasjonspunkt("/tmp/root/integrasjonspunkt-2.2.0.jar");
+
+        verifyNew(ProcessExecutor.class).withArguments(listArgumentCaptor.capture());
+        assertThat(listArgumentCaptor.getValue()).containsExactly(Paths.get("/opt/jdk", "bin", "java").toString(),
+                "-Xmx512m",
+                "-Xlog:gc:file=/tmp/root/gc-2.2.0.log",
+                "-jar", "/tmp/root/integrasjonspunkt-2.2.0.jar",
+                "--management.endpoint.shutdown.enabled=true",
+                "--app.logger.enableSSL=false",
+                "--spring.profiles.active=staging",
+                "--server.tomcat.basedir=/tmp/root/tomcat-9093-staging"
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_withClassDataArchive() {
+        given(classDataSharing.getArchive("test.jar", "java")).willReturn(Optional.of(Paths.get("test.jsa")));
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(actuatorService.getStatus(9093)).willReturn(HealthStatus.UP);
+
+        launcherService.launchIntegrasjonspunkt("test.jar");
+
+        verifyNew(ProcessExecutor.class).withArguments(listArgumentCaptor.capture());
+        assertThat(listArgumentCaptor.getValue()).containsSubsequence("java", "-XX:SharedArchiveFile=test.jsa", "-jar", "test.jar");
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_whenExtracted() {
+        given(explodedLayout.get("test.jar")).willReturn(Optional.of(new ExplodedLayout.Exploded(
+                "no.difi.meldingsutveksling.IntegrasjonspunktApplication", Arrays.asList("test/BOOT-INF/classes", "test/BOOT-INF/lib/a.jar"))));
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(actuatorService.getStatus(9093)).willReturn(HealthStatus.UP);
+
+        launcherService.launchIntegrasjonspunkt("test.jar");
+
+        verifyNew(ProcessExecutor.class).withArguments(listArgumentCaptor.capture());
+        assertThat(listArgumentCaptor.getValue()).containsExactly("java",
+                "-cp", "test/BOOT-INF/classes" + File.pathSeparator + "test/BOOT-INF/lib/a.jar",
+                "no.difi.meldingsutveksling.IntegrasjonspunktApplication",
+                "--management.endpoint.shutdown.enabled=true",
+                "--app.logger.enableSSL=false",
+                "--spring.profiles.active=staging"
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    public void testCreateClassDataArchive_whenDisabled() {
+        given(classDataSharing.isEnabled("java")).willReturn(false);
+
+        assertThat(launcherService.createClassDataArchive("test.jar")).isFalse();
+
+        verifyNew(ProcessExecutor.class, never()).withArguments(any());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testCreateClassDataArchive_whenTrainingRunDoesNotStart() {
+        properties.getIntegrasjonspunkt().getClassDataSharing()
+                .setEnabled(true)
+                .setTrainingPort(9095)
+                .setTrainingProfile("dev")
+                .setTrainingTimeoutInMs(50);
+        given(classDataSharing.isEnabled("java")).willReturn(true);
+        Process process = mock(Process.class);
+        given(startedProcessMock.getProcess()).willReturn(process);
+        given(process.waitFor(anyLong(), any(TimeUnit.class))).willReturn(true);
+
+        assertThat(launcherService.createClassDataArchive("/tmp/root/integrasjonspunkt-2.2.0.jar")).isFalse();
+
+        verifyNew(ProcessExecutor.class).withArguments(listArgumentCaptor.capture());
+        assertThat(listArgumentCaptor.getValue())
+                .contains("-XX:ArchiveClassesAtExit=" + Paths.get("/tmp/root/integrasjonspunkt-2.2.0.jsa.tmp"),
+                        "--spring.profiles.active=dev", "--server.port=9095");
+        verify(process).destroy();
+        verify(process, never()).destroyForcibly();
     }
 
     @Test
     @SneakyThrows
     public void testLaunchIntegrasjonspunkt_whenActuatorReturnsFailure() {
-        given(actuatorService.getStatus()).willReturn(HealthStatus.UNKNOWN);
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(actuatorService.getStatus(9093)).willReturn(HealthStatus.UNKNOWN);
 
         assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
                 .hasFieldOrPropertyWithValue("jarPath", "test.jar")
@@ -128,6 +259,90 @@ public class LauncherServiceImplTest {
                 .hasFieldOrPropertyWithValue("startupLog", "theStartUpLog");
 
         verify(futureMock).cancel(true);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_whenFatalLineLogged_shouldFailWithoutWaiting() {
+        properties.getIntegrasjonspunkt().getFatalStartupPatterns().put("application-failed-to-start", "APPLICATION FAILED TO START");
+        given(properties.getLaunchTimeoutInMs()).willReturn(60000);
+        whenNew(StartupLog.class).withAnyArguments().thenAnswer(invocation -> {
+            invocation.<StartupMonitor>getArgument(1).onLine("*** APPLICATION FAILED TO START ***");
+            return startupLogMock;
+        });
+
+        long start = System.currentTimeMillis();
+        assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
+                .hasFieldOrPropertyWithValue("status", LaunchStatus.FAILED)
+                .hasFieldOrPropertyWithValue("failure",
+                        new StartupFailure("application-failed-to-start", "*** APPLICATION FAILED TO START ***"));
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(10000);
+        verify(futureMock).cancel(true);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_whenNoProgress_shouldFailBeforeTimeout() {
+        given(properties.getLaunchTimeoutInMs()).willReturn(60000);
+        given(properties.getLaunchQuietPeriodInMs()).willReturn(50);
+
+        long start = System.currentTimeMillis();
+        assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
+                .hasFieldOrPropertyWithValue("status", LaunchStatus.FAILED);
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(10000);
+        verify(futureMock).cancel(true);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_whenVersionStartedFasterBefore_shouldWaitWhileProgressing() {
+        given(properties.getLaunchTimeoutInMs()).willReturn(60000);
+        given(properties.getLaunchQuietPeriodInMs()).willReturn(100);
+        given(kosmosDirectoryRepo.getStartupDuration(fileMock)).willReturn(Duration.ofMillis(50));
+        whenNew(StartupLog.class).withAnyArguments().thenAnswer(invocation -> {
+            StartupMonitor startupMonitor = invocation.getArgument(1);
+            // Keeps reporting progress, for longer than three times the last startup
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }).scheduleAtFixedRate(() -> startupMonitor.onLine("Initializing"), 0, 10, TimeUnit.MILLISECONDS);
+            return startupLogMock;
+        });
+        given(actuatorService.getActivePort()).willReturn(9093);
+        long start = System.currentTimeMillis();
+        given(actuatorService.getStatus(9093)).willAnswer(invocation ->
+                System.currentTimeMillis() - start >= 500 ? HealthStatus.UP : HealthStatus.DOWN);
+
+        assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
+                .hasFieldOrPropertyWithValue("status", LaunchStatus.SUCCESS);
+
+        verify(futureMock, never()).cancel(anyBoolean());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_whenStartedButNeverUp_shouldFailBeforeTimeout() {
+        given(properties.getLaunchTimeoutInMs()).willReturn(60000);
+        given(properties.getLaunchQuietPeriodInMs()).willReturn(100);
+        whenNew(StartupLog.class).withAnyArguments().thenAnswer(invocation -> {
+            invocation.<StartupMonitor>getArgument(1).onLine("Started IntegrasjonspunktApplication in 12.3 seconds");
+            return startupLogMock;
+        });
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(actuatorService.getStatus(9093)).willReturn(HealthStatus.DOWN);
+
+        long start = System.currentTimeMillis();
+        assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
+                .hasFieldOrPropertyWithValue("status", LaunchStatus.FAILED);
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(10000);
+        verify(futureMock).cancel(true);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -141,6 +356,63 @@ public class LauncherServiceImplTest {
         verify(futureMock).cancel(true);
     }
 
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_whenBlueGreenSucceeds_shouldSwitchToNewInstance() {
+        properties.getIntegrasjonspunkt().getBlueGreen().setEnabled(true);
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(actuatorService.getIdlePort()).willReturn(9094);
+        given(actuatorService.getStatus()).willReturn(HealthStatus.UP);
+        given(actuatorService.getStatus(9094)).willReturn(HealthStatus.UP);
+        given(actuatorService.shutdown()).willReturn(true);
+
+        assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
+                .hasFieldOrPropertyWithValue("status", LaunchStatus.SUCCESS);
+
+        verifyNew(ProcessExecutor.class).withArguments(listArgumentCaptor.capture());
+        assertThat(listArgumentCaptor.getValue()).contains("--server.port=9094");
+        InOrder inOrder = inOrder(actuatorService);
+        inOrder.verify(actuatorService).shutdown();
+        inOrder.verify(actuatorService).switchTo(9094);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_whenBlueGreenSwitches_shouldShareConsoleLog() {
+        properties.getIntegrasjonspunkt().getBlueGreen().setEnabled(true);
+        whenNew(RotatingFileSink.class).withAnyArguments().thenReturn(mock(RotatingFileSink.class));
+        given(actuatorService.getActivePort()).willReturn(9093, 9094);
+        given(actuatorService.getIdlePort()).willReturn(9094, 9093);
+        given(actuatorService.getStatus()).willReturn(HealthStatus.UP);
+        given(actuatorService.getStatus(anyInt())).willReturn(HealthStatus.UP);
+        given(actuatorService.shutdown()).willReturn(true);
+
+        assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
+                .hasFieldOrPropertyWithValue("status", LaunchStatus.SUCCESS);
+        assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
+                .hasFieldOrPropertyWithValue("status", LaunchStatus.SUCCESS);
+
+        verifyNew(RotatingFileSink.class, times(1)).withArguments(
+                eq(Paths.get("/tmp/root", LauncherServiceImpl.CONSOLE_LOG_FILE_NAME)), eq(1024L), eq(2));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLaunchIntegrasjonspunkt_whenBlueGreenFails_shouldKeepRunningInstance() {
+        properties.getIntegrasjonspunkt().getBlueGreen().setEnabled(true);
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(actuatorService.getIdlePort()).willReturn(9094);
+        given(actuatorService.getStatus()).willReturn(HealthStatus.UP);
+        given(actuatorService.getStatus(9094)).willReturn(HealthStatus.UNKNOWN);
+
+        assertThat(launcherService.launchIntegrasjonspunkt("test.jar"))
+                .hasFieldOrPropertyWithValue("status", LaunchStatus.FAILED);
+
+        verify(futureMock).cancel(true);
+        verify(actuatorService, never()).shutdown();
+        verify(actuatorService, never()).switchTo(anyInt());
+    }
+
     @Test
     @SneakyThrows(IOException.class)
     public void testLaunchIntegrasjonspunkt_whenIOException() {
@@ -152,4 +424,72 @@ public class LauncherServiceImplTest {
                 .hasFieldOrPropertyWithValue("status", LaunchStatus.FAILED)
                 .hasFieldOrPropertyWithValue("startupLog", "test exception");
     }
+
+    @Test
+    @SneakyThrows
+    public void testShutdownIntegrasjonspunkt_whenProcessExitsWhenAsked() {
+        givenTrackedProcess();
+        given(actuatorService.requestShutdown()).willReturn(true);
+        given(trackedProcess.awaitExit(Duration.ofMillis(3000))).willReturn(true);
+
+        assertThat(launcherService.shutdownIntegrasjonspunkt()).isTrue();
+
+        verify(trackedProcess, never()).terminate();
+        verify(trackedProcess, never()).kill();
+        verify(processTracker).untrack(9093);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testShutdownIntegrasjonspunkt_whenProcessIgnoresShutdown_shouldEscalate() {
+        givenTrackedProcess();
+        given(actuatorService.requestShutdown()).willReturn(true);
+        given(trackedProcess.awaitExit(any(Duration.class))).willReturn(false, false, true);
+
+        assertThat(launcherService.shutdownIntegrasjonspunkt()).isTrue();
+
+        InOrder inOrder = inOrder(actuatorService, trackedProcess);
+        inOrder.verify(actuatorService).requestShutdown();
+        inOrder.verify(trackedProcess).awaitExit(Duration.ofMillis(3000));
+        inOrder.verify(trackedProcess).terminate();
+        inOrder.verify(trackedProcess).awaitExit(Duration.ofMillis(10000));
+        inOrder.verify(trackedProcess).kill();
+        inOrder.verify(trackedProcess).awaitExit(Duration.ofMillis(5000));
+        verify(actuatorService, never()).shutdown();
+    }
+
+    @Test
+    @SneakyThrows
+    public void testShutdownIntegrasjonspunkt_whenShutdownRequestFails_shouldTerminate() {
+        givenTrackedProcess();
+        given(actuatorService.requestShutdown()).willReturn(false);
+        given(trackedProcess.awaitExit(Duration.ofMillis(10000))).willReturn(true);
+
+        assertThat(launcherService.shutdownIntegrasjonspunkt()).isTrue();
+
+        verify(trackedProcess).terminate();
+        verify(trackedProcess, never()).kill();
+    }
+
+    @Test
+    public void testShutdownIntegrasjonspunkt_whenProcessUnknown_shouldShutdownOverHttp() {
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(processTracker.get(9093)).willReturn(Optional.empty());
+        given(actuatorService.shutdown()).willReturn(true);
+
+        assertThat(launcherService.shutdownIntegrasjonspunkt()).isTrue();
+
+        verify(actuatorService).shutdown();
+        verify(actuatorService, never()).requestShutdown();
+    }
+
+    private void givenTrackedProcess() {
+        given(properties.getShutdownRetries()).willReturn(3);
+        given(properties.getShutdownPollIntervalInMs()).willReturn(1000);
+        given(properties.getShutdownTerminateTimeoutInMs()).willReturn(10000);
+        given(properties.getShutdownKillTimeoutInMs()).willReturn(5000);
+        given(actuatorService.getActivePort()).willReturn(9093);
+        given(processTracker.get(9093)).willReturn(Optional.of(trackedProcess));
+        given(trackedProcess.isAlive()).willReturn(true, false);
+    }
 }
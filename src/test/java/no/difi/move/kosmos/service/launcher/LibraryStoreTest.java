@@ -0,0 +1,77 @@
+package no.difi.move.kosmos.service.launcher;
+
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LibraryStoreTest {
+
+    private static final String LIB = "BOOT-INF/lib/a.jar";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LibraryStore target;
+    private File jar;
+
+    @Before
+    public void setUp() throws IOException {
+        KosmosProperties properties = new KosmosProperties();
+        properties.setIntegrasjonspunkt(new IntegrasjonspunktProperties().setHome(temporaryFolder.getRoot().getAbsolutePath()));
+        target = new LibraryStore(properties);
+        jar = temporaryFolder.newFile("integrasjonspunkt-2.2.0.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            out.putNextEntry(new JarEntry(LIB));
+            out.write("a".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    @Test
+    public void link_sameContentTwice_shouldStoreOnce() throws IOException {
+        Path first = temporaryFolder.newFolder("first").toPath().resolve("a.jar");
+        Path second = temporaryFolder.newFolder("second").toPath().resolve("a.jar");
+
+        String hash;
+        try (JarFile jarFile = new JarFile(jar)) {
+            hash = target.link(jarFile, jarFile.getJarEntry(LIB), first);
+            assertThat(target.link(jarFile, jarFile.getJarEntry(LIB), second)).isEqualTo(hash);
+        }
+
+        assertThat(hash).isEqualTo("ca978112ca1bbdcafac231b39a23dc4da786eff8147c4e72b9807785afee48bb");
+        assertThat(target.getPath(hash)).hasContent("a");
+        assertThat(Files.isSameFile(first, target.getPath(hash))).isTrue();
+        assertThat(Files.isSameFile(second, target.getPath(hash))).isTrue();
+    }
+
+    @Test
+    public void collectGarbage_shouldDeleteOnlyUnreferenced() throws IOException {
+        Path linked = temporaryFolder.newFolder("linked").toPath().resolve("a.jar");
+        String hash;
+        try (JarFile jarFile = new JarFile(jar)) {
+            hash = target.link(jarFile, jarFile.getJarEntry(LIB), linked);
+        }
+
+        assertThat(target.collectGarbage(Collections.singletonMap(hash, 1))).isZero();
+        assertThat(target.getPath(hash)).exists();
+
+        assertThat(target.collectGarbage(Collections.emptyMap())).isEqualTo(1);
+        assertThat(target.getPath(hash)).doesNotExist();
+        assertThat(linked).hasContent("a");
+    }
+}
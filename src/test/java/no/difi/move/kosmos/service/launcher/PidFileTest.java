@@ -0,0 +1,142 @@
+package no.difi.move.kosmos.service.launcher;
+
+import no.difi.move.kosmos.config.IntegrasjonspunktProperties;
+import no.difi.move.kosmos.config.KosmosProperties;
+import no.difi.move.kosmos.service.launcher.dto.ProcessMetadata;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PidFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path procRoot;
+    private PidFile target;
+    private ProcessMetadata metadata;
+
+    @Before
+    public void setUp() throws IOException {
+        KosmosProperties properties = new KosmosProperties()
+                .setIntegrasjonspunkt(new IntegrasjonspunktProperties()
+                        .setHome(temporaryFolder.newFolder("home").getAbsolutePath()));
+        procRoot = temporaryFolder.newFolder("proc").toPath();
+        target = new PidFile(properties, procRoot);
+        metadata = ProcessMetadata.builder()
+                .pid(4242)
+                .version("2.1.0")
+                .jarPath("/home/integrasjonspunkt-2.1.0.jar")
+                .startedAt(Instant.parse("2021-03-01T10:15:30Z"))
+                .command(Arrays.asList("java", "-jar", "/home/integrasjonspunkt-2.1.0.jar"))
+                .build();
+    }
+
+    @Test
+    public void read_AfterWrite_ShouldReturnMetadata() {
+        target.write(metadata);
+
+        assertThat(target.read()).contains(metadata);
+    }
+
+    @Test
+    public void read_WithPort_ShouldReturnPort() {
+        ProcessMetadata withPort = metadata.toBuilder().port(9094).build();
+        target.write(withPort);
+
+        assertThat(target.read()).contains(withPort);
+    }
+
+    @Test
+    public void read_NoFile_ShouldBeEmpty() {
+        assertThat(target.read()).isEmpty();
+    }
+
+    @Test
+    public void read_AfterDelete_ShouldBeEmpty() {
+        target.write(metadata);
+        target.delete();
+
+        assertThat(target.read()).isEmpty();
+    }
+
+    @Test
+    public void read_WrittenByEarlierKosmos_ShouldSplitCommandLine() throws IOException {
+        Files.write(temporaryFolder.getRoot().toPath().resolve("home").resolve(PidFile.FILE_NAME), Arrays.asList(
+                "pid=4242",
+                "version=2.1.0",
+                "jarPath=/home/integrasjonspunkt-2.1.0.jar",
+                "startedAt=2021-03-01T10:15:30Z",
+                "commandLine=java -jar /home/integrasjonspunkt-2.1.0.jar"));
+
+        assertThat(target.read()).contains(metadata);
+    }
+
+    @Test
+    public void delete_OtherProcessRecorded_ShouldKeepFile() {
+        ProcessMetadata next = metadata.toBuilder().pid(4343).port(9094).build();
+        target.write(next);
+
+        target.delete(metadata);
+
+        assertThat(target.read()).contains(next);
+    }
+
+    @Test
+    public void delete_ProcessRecorded_ShouldDeleteFile() {
+        target.write(metadata);
+
+        target.delete(metadata);
+
+        assertThat(target.read()).isEmpty();
+    }
+
+    @Test
+    public void isAlive_ArgumentWithSpaces_ShouldCompareArguments() throws IOException {
+        ProcessMetadata withSpaces = metadata.toBuilder()
+                .command(Arrays.asList("java", "-Dname=a b", "-jar", "/home/integrasjonspunkt-2.1.0.jar"))
+                .build();
+        target.write(withSpaces);
+        givenProcess(4242, "java\0-Dname=a\0b\0-jar\0/home/integrasjonspunkt-2.1.0.jar\0");
+
+        assertThat(target.isAlive(withSpaces)).isFalse();
+
+        givenProcess(4242, "java\0-Dname=a b\0-jar\0/home/integrasjonspunkt-2.1.0.jar\0");
+
+        assertThat(target.isAlive(target.read().get())).isTrue();
+    }
+
+    @Test
+    public void isAlive_SameCommandLine_ShouldBeTrue() throws IOException {
+        givenProcess(4242, "java\0-jar\0/home/integrasjonspunkt-2.1.0.jar\0");
+
+        assertThat(target.isAlive(metadata)).isTrue();
+    }
+
+    @Test
+    public void isAlive_PidReusedByOtherProcess_ShouldBeFalse() throws IOException {
+        givenProcess(4242, "/usr/sbin/sshd\0-D\0");
+
+        assertThat(target.isAlive(metadata)).isFalse();
+    }
+
+    @Test
+    public void isAlive_NoProcess_ShouldBeFalse() {
+        assertThat(target.isAlive(metadata)).isFalse();
+    }
+
+    private void givenProcess(long pid, String cmdline) throws IOException {
+        Path process = Files.createDirectories(procRoot.resolve(Long.toString(pid)));
+        Files.write(process.resolve("cmdline"), cmdline.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,98 @@
+package no.difi.move.kosmos.service.launcher;
+
+import no.difi.move.kosmos.service.actuator.ActuatorService;
+import no.difi.move.kosmos.service.launcher.dto.ProcessMetadata;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProcessAdopterTest {
+
+    private static final ProcessMetadata METADATA = ProcessMetadata.builder()
+            .pid(4242)
+            .version("2.1.0")
+            .jarPath("/home/integrasjonspunkt-2.1.0.jar")
+            .startedAt(Instant.parse("2021-03-01T10:15:30Z"))
+            .command(Arrays.asList("java", "-jar", "/home/integrasjonspunkt-2.1.0.jar"))
+            .build();
+
+    @Mock
+    private PidFile pidFile;
+    @Mock
+    private ProcessTracker processTracker;
+    @Mock
+    private ActuatorService actuatorService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ProcessAdopter target;
+
+    @Test
+    public void adopt_ProcessRunning_ShouldHandOverProcess() {
+        given(pidFile.read()).willReturn(Optional.of(METADATA));
+        given(pidFile.isAlive(METADATA)).willReturn(true);
+
+        assertThat(target.adopt()).contains(METADATA);
+
+        verify(processTracker).adopt(METADATA);
+        verify(actuatorService, never()).switchTo(anyInt());
+
+        ArgumentCaptor<IntegrasjonspunktLaunchedEvent> event = ArgumentCaptor.forClass(IntegrasjonspunktLaunchedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getJarPath()).isEqualTo(METADATA.getJarPath());
+        assertThat(event.getValue().getProcess().isDone()).isFalse();
+    }
+
+    @Test
+    public void adopt_ProcessOnOwnPort_ShouldMakeItActive() {
+        ProcessMetadata onAlternatePort = METADATA.toBuilder().port(9094).build();
+        given(pidFile.read()).willReturn(Optional.of(onAlternatePort));
+        given(pidFile.isAlive(onAlternatePort)).willReturn(true);
+
+        assertThat(target.adopt()).contains(onAlternatePort);
+
+        InOrder inOrder = inOrder(actuatorService, processTracker);
+        inOrder.verify(actuatorService).switchTo(9094);
+        inOrder.verify(processTracker).adopt(onAlternatePort);
+    }
+
+    @Test
+    public void adopt_ProcessGone_ShouldRemovePidFile() {
+        given(pidFile.read()).willReturn(Optional.of(METADATA));
+        given(pidFile.isAlive(METADATA)).willReturn(false);
+
+        assertThat(target.adopt()).isEmpty();
+
+        verify(pidFile).delete();
+        verify(processTracker, never()).adopt(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void adopt_NoPidFile_ShouldDoNothing() {
+        given(pidFile.read()).willReturn(Optional.empty());
+
+        assertThat(target.adopt()).isEmpty();
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+}
@@ -0,0 +1,97 @@
+package no.difi.move.kosmos.service.launcher;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RotatingFileSinkTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void write_ShouldKeepBytesUnchanged() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("console.log");
+        try (RotatingFileSink sink = new RotatingFileSink(file, 1024, 3)) {
+            sink.write("first line\nsecond ".getBytes(StandardCharsets.UTF_8));
+            sink.write("line\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(file).hasContent("first line\nsecond line\n");
+    }
+
+    @Test
+    public void write_LimitReached_ShouldRotate() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("console.log");
+        try (RotatingFileSink sink = new RotatingFileSink(file, 10, 3)) {
+            sink.write("aaaaaaaa\n".getBytes(StandardCharsets.UTF_8));
+            sink.write("bbbbbbbb\n".getBytes(StandardCharsets.UTF_8));
+            sink.write("cccccccc\n".getBytes(StandardCharsets.UTF_8));
+            sink.write("dddddddd\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(file).hasContent("dddddddd\n");
+        assertThat(file.resolveSibling("console.log.1")).hasContent("cccccccc\n");
+        assertThat(file.resolveSibling("console.log.2")).hasContent("bbbbbbbb\n");
+        assertThat(file.resolveSibling("console.log.3")).doesNotExist();
+    }
+
+    @Test
+    public void write_ExistingFile_ShouldAppend() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("console.log");
+        Files.write(file, "before\n".getBytes(StandardCharsets.UTF_8));
+        try (RotatingFileSink sink = new RotatingFileSink(file, 1024, 3)) {
+            sink.write("after\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(file).hasContent("before\nafter\n");
+    }
+
+    @Test
+    public void write_FileNotWritable_ShouldDiscardWithoutFailing() throws IOException {
+        Path directory = temporaryFolder.newFolder("console.log").toPath();
+        try (RotatingFileSink sink = new RotatingFileSink(directory, 1024, 3)) {
+            sink.write("lost\n".getBytes(StandardCharsets.UTF_8));
+            sink.write("lost\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(directory).isDirectory();
+    }
+
+    @Test
+    public void write_FailedOnce_ShouldRecoverAfterRetryInterval() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("console.log");
+        Files.createDirectory(file);
+        try (RotatingFileSink sink = new RotatingFileSink(file, 1024, 3, Duration.ZERO)) {
+            sink.write("lost\n".getBytes(StandardCharsets.UTF_8));
+            Files.delete(file);
+            sink.write("kept\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(file).hasContent("kept\n");
+    }
+
+    @Test
+    public void write_FailedBeforeClose_ShouldRecoverForNextWriter() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("console.log");
+        Files.createDirectory(file);
+        RotatingFileSink sink = new RotatingFileSink(file, 1024, 3, Duration.ofHours(1));
+        sink.write("lost\n".getBytes(StandardCharsets.UTF_8));
+        Files.delete(file);
+        sink.write("lost\n".getBytes(StandardCharsets.UTF_8));
+        sink.close();
+
+        sink.write("kept\n".getBytes(StandardCharsets.UTF_8));
+        sink.close();
+
+        assertThat(file).hasContent("kept\n");
+    }
+}
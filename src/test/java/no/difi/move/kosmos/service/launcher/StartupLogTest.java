@@ -2,6 +2,9 @@ package no.difi.move.kosmos.service.launcher;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 
@@ -23,4 +26,71 @@ public class StartupLogTest {
         startupLog.processLine("Hallo");
         assertThat(startupLog.getLog()).isEqualTo("bla bla\n");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getLog_MoreLinesThanLimit_ShouldKeepHeadAndTail() {
+        StartupLog startupLog = new StartupLog(false, new StartupMonitor(), 2, 1000);
+        for (int i = 1; i <= StartupLog.HEAD_LINES + 5; i++) {
+            startupLog.processLine("line " + i);
+        }
+
+        String log = startupLog.getLog();
+
+        assertThat(log).startsWith("line 1\nline 2\n")
+                .contains("line " + StartupLog.HEAD_LINES + "\n... 3 lines omitted ...\n")
+                .endsWith("line " + (StartupLog.HEAD_LINES + 4) + "\nline " + (StartupLog.HEAD_LINES + 5) + "\n");
+    }
+
+    @Test
+    public void getLog_MoreBytesThanLimit_ShouldDropOldestTailLines() {
+        StartupLog startupLog = new StartupLog(false, new StartupMonitor(), 1000, 12);
+        for (int i = 0; i < StartupLog.HEAD_LINES; i++) {
+            startupLog.processLine("head");
+        }
+        startupLog.processLine("aaaaa");
+        startupLog.processLine("bbbbb");
+        startupLog.processLine("ccccc");
+
+        assertThat(startupLog.getLog())
+                .endsWith("head\n... 1 lines omitted ...\nbbbbb\nccccc\n");
+    }
+
+    @Test
+    public void getLog_MultiByteCharacters_ShouldCountBytes() {
+        StartupLog startupLog = new StartupLog(false, new StartupMonitor(), 1000, 12);
+        for (int i = 0; i < StartupLog.HEAD_LINES; i++) {
+            startupLog.processLine("head");
+        }
+        startupLog.processLine("æææ");
+        startupLog.processLine("øøø");
+
+        assertThat(startupLog.getLog())
+                .endsWith("head\n... 1 lines omitted ...\nøøø\n");
+    }
+
+    @Test
+    public void getLog_LongLines_ShouldTruncateHeadAndTailLines() {
+        StartupLog startupLog = new StartupLog(false, new StartupMonitor(), 1000, 6);
+        startupLog.processLine("ååå");
+        for (int i = 1; i < StartupLog.HEAD_LINES; i++) {
+            startupLog.processLine("head");
+        }
+        startupLog.processLine("tail line");
+
+        assertThat(startupLog.getLog())
+                .startsWith("åå\nhead\n")
+                .endsWith("head\ntail \n");
+    }
+
+    @Test
+    public void forEachLine_ShouldStreamRecordedLines() {
+        StartupLog startupLog = new StartupLog(false);
+        startupLog.processLine("first");
+        startupLog.processLine("second");
+
+        List<String> lines = new ArrayList<>();
+        startupLog.forEachLine(lines::add);
+
+        assertThat(lines).containsExactly("first", "second");
+    }
+}
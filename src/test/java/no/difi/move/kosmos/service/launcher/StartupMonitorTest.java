@@ -0,0 +1,89 @@
+package no.difi.move.kosmos.service.launcher;
+
+import lombok.SneakyThrows;
+import no.difi.move.kosmos.service.launcher.dto.StartupFailure;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupMonitorTest {
+
+    private final StartupMonitor startupMonitor = new StartupMonitor();
+
+    @Test
+    @SneakyThrows
+    public void awaitOutcome_StartedLineLogged_ShouldReturnTrue() {
+        startupMonitor.onLine("2021-02-01 12:00:00.000  INFO 1234 --- [main] n.d.m.IntegrasjonspunktApplication : Starting IntegrasjonspunktApplication");
+        assertThat(startupMonitor.isStarted()).isFalse();
+
+        startupMonitor.onLine("2021-02-01 12:00:30.000  INFO 1234 --- [main] n.d.m.IntegrasjonspunktApplication : Started IntegrasjonspunktApplication in 29.874 seconds (JVM running for 31.2)");
+
+        assertThat(startupMonitor.isStarted()).isTrue();
+        assertThat(startupMonitor.awaitOutcome(0)).isTrue();
+        assertThat(startupMonitor.getFailure()).isNull();
+    }
+
+    @Test
+    @SneakyThrows
+    public void awaitOutcome_NothingLogged_ShouldTimeOut() {
+        startupMonitor.onLine("Started nothing yet");
+        assertThat(startupMonitor.awaitOutcome(10)).isFalse();
+    }
+
+    @Test
+    @SneakyThrows
+    public void awaitOutcome_FatalLineLogged_ShouldReportFailure() {
+        StartupMonitor monitor = new StartupMonitor(Collections.singletonMap("port-in-use",
+                Pattern.compile("Port \\d+ was already in use")), Collections.emptyList());
+        monitor.onLine("2021-02-01 12:00:00.000  INFO 1234 --- [main] n.d.m.IntegrasjonspunktApplication : Starting IntegrasjonspunktApplication");
+        assertThat(monitor.awaitOutcome(0)).isFalse();
+
+        monitor.onLine("Web server failed to start. Port 9093 was already in use.");
+
+        assertThat(monitor.awaitOutcome(0)).isTrue();
+        assertThat(monitor.isStarted()).isFalse();
+        assertThat(monitor.getFailure())
+                .isEqualTo(new StartupFailure("port-in-use", "Web server failed to start. Port 9093 was already in use."));
+    }
+
+    @Test
+    @SneakyThrows
+    public void onLine_FatalLineAfterStartup_ShouldBeIgnored() {
+        StartupMonitor monitor = new StartupMonitor(Collections.singletonMap("failed",
+                Pattern.compile("APPLICATION FAILED TO START")), Collections.emptyList());
+        monitor.onLine("Started IntegrasjonspunktApplication in 29.874 seconds (JVM running for 31.2)");
+        monitor.onLine("APPLICATION FAILED TO START");
+
+        assertThat(monitor.isStarted()).isTrue();
+        assertThat(monitor.getFailure()).isNull();
+    }
+
+    @Test
+    @SneakyThrows
+    public void getQuietTime_ProgressLineLogged_ShouldStartOver() {
+        StartupMonitor monitor = new StartupMonitor(Collections.emptyMap(),
+                Collections.singletonList(Pattern.compile("Tomcat initialized")));
+        Thread.sleep(50);
+        monitor.onLine("Some unrelated line");
+        assertThat(monitor.getQuietTime()).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+
+        monitor.onLine("Tomcat initialized with port(s): 9093 (http)");
+
+        assertThat(monitor.getQuietTime()).isLessThan(Duration.ofMillis(50));
+    }
+
+    @Test
+    @SneakyThrows
+    public void resetQuietTime_ShouldStartOver() {
+        StartupMonitor monitor = new StartupMonitor();
+        Thread.sleep(50);
+
+        monitor.resetQuietTime();
+
+        assertThat(monitor.getQuietTime()).isLessThan(Duration.ofMillis(50));
+    }
+}